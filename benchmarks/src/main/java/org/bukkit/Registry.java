@@ -0,0 +1,46 @@
+package org.bukkit;
+
+import org.bukkit.block.Biome;
+import org.bukkit.enchantments.Enchantment;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Benchmark stand-in for the server-backed registries.
+ * Only exposes what the plugin touches; unknown keys resolve to a new entry, like a data-driven registry would.
+ */
+public interface Registry<T extends Keyed> {
+
+    Registry<Enchantment> ENCHANTMENT = new SimpleRegistry<>(Enchantment::new);
+
+    // Biome is an interface with server-side state, a proxy answering getKey() is all the loader needs
+    Registry<Biome> BIOME = new SimpleRegistry<>(key -> (Biome) Proxy.newProxyInstance(
+            Registry.class.getClassLoader(), new Class<?>[]{Biome.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "getKey", "key" -> key;
+                case "hashCode" -> key.hashCode();
+                case "equals" -> proxy == args[0];
+                case "toString" -> key.toString();
+                default -> throw new UnsupportedOperationException(method.getName());
+            }));
+
+    T get(NamespacedKey key);
+
+    final class SimpleRegistry<T extends Keyed> implements Registry<T> {
+
+        private final Map<NamespacedKey, T> entries = new ConcurrentHashMap<>();
+        private final Function<NamespacedKey, T> factory;
+
+        SimpleRegistry(Function<NamespacedKey, T> factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public T get(NamespacedKey key) {
+            return entries.computeIfAbsent(key, factory);
+        }
+    }
+}
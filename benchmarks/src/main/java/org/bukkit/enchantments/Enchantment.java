@@ -0,0 +1,31 @@
+package org.bukkit.enchantments;
+
+import org.bukkit.Keyed;
+import org.bukkit.NamespacedKey;
+
+/**
+ * Benchmark stand-in for the registry-backed Enchantment.
+ * Instances are created by the stand-in {@link org.bukkit.Registry#ENCHANTMENT}.
+ */
+public class Enchantment implements Keyed {
+
+    private final NamespacedKey key;
+
+    public Enchantment(NamespacedKey key) {
+        this.key = key;
+    }
+
+    @Override
+    public NamespacedKey getKey() {
+        return key;
+    }
+
+    public int getMaxLevel() {
+        return 5;
+    }
+
+    @Override
+    public String toString() {
+        return "Enchantment[" + key + "]";
+    }
+}
@@ -0,0 +1,128 @@
+package org.bukkit.inventory;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.meta.EnchantmentStorageMeta;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Benchmark stand-in for the server-backed ItemStack.
+ * Shadows the API class on the benchmark classpath so stacks can be built without a running server.
+ * Keeps the same allocation shape as the real type: a stack plus a lazily copied meta object.
+ */
+public class ItemStack implements Cloneable {
+
+    private final Material type;
+    private int amount;
+    private Map<Object, Integer> storedEnchants;
+
+    public ItemStack(Material type) {
+        this(type, 1);
+    }
+
+    public ItemStack(Material type, int amount) {
+        this.type = type;
+        this.amount = amount;
+    }
+
+    public Material getType() {
+        return type;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public void setAmount(int amount) {
+        this.amount = amount;
+    }
+
+    public ItemMeta getItemMeta() {
+        // Like the server, every call hands out a fresh copy of the meta
+        Map<Object, Integer> copy = storedEnchants == null ? new HashMap<>() : new HashMap<>(storedEnchants);
+        Class<?> metaType = type == Material.ENCHANTED_BOOK ? EnchantmentStorageMeta.class : ItemMeta.class;
+        return (ItemMeta) Proxy.newProxyInstance(ItemStack.class.getClassLoader(), new Class<?>[]{metaType},
+                new MetaHandler(copy));
+    }
+
+    public boolean setItemMeta(ItemMeta meta) {
+        if (meta != null && Proxy.getInvocationHandler(meta) instanceof MetaHandler handler) {
+            storedEnchants = new HashMap<>(handler.storedEnchants);
+        }
+        return true;
+    }
+
+    public boolean isSimilar(ItemStack other) {
+        return other != null && other.type == type
+                && (storedEnchants == null ? other.storedEnchants == null : storedEnchants.equals(other.storedEnchants));
+    }
+
+    // Same contract as the real type: amount plus isSimilar, so stacks work as hash keys like on a server
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ItemStack stack && stack.amount == amount && isSimilar(stack);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * type.hashCode() + amount) + (storedEnchants == null ? 0 : storedEnchants.hashCode());
+    }
+
+    @Override
+    public ItemStack clone() {
+        try {
+            ItemStack clone = (ItemStack) super.clone();
+            if (storedEnchants != null) {
+                clone.storedEnchants = new HashMap<>(storedEnchants);
+            }
+            return clone;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private record MetaHandler(Map<Object, Integer> storedEnchants) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "addStoredEnchant" -> {
+                    storedEnchants.put(args[0], (Integer) args[1]);
+                    return true;
+                }
+                case "hasStoredEnchants" -> {
+                    return !storedEnchants.isEmpty();
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "toString" -> {
+                    return "StandInMeta" + storedEnchants;
+                }
+                default -> {
+                    return defaultValue(method.getReturnType());
+                }
+            }
+        }
+
+        private static Object defaultValue(Class<?> type) {
+            if (type == boolean.class) return false;
+            if (type == int.class) return 0;
+            if (type == long.class) return 0L;
+            if (type == double.class) return 0D;
+            if (type == float.class) return 0F;
+            if (type == short.class) return (short) 0;
+            if (type == byte.class) return (byte) 0;
+            if (type == char.class) return '\0';
+            return null;
+        }
+    }
+}
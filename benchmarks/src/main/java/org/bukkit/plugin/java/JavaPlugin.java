@@ -0,0 +1,136 @@
+package org.bukkit.plugin.java;
+
+import org.bukkit.Server;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.logging.Logger;
+
+/**
+ * Benchmark stand-in for the server-loaded plugin base class.
+ * The real one refuses to be constructed outside a plugin class loader; this one is wired up
+ * with {@link #attach} instead, so the plugin can be enabled against a headless server.
+ * Only the methods the plugin calls are implemented.
+ */
+public abstract class JavaPlugin implements Plugin {
+
+    private Server server;
+    private File dataFolder;
+    private PluginDescriptionFile description;
+    private Logger logger;
+    private FileConfiguration config;
+    private boolean enabled;
+
+    /**
+     * Binds the plugin to a server and data folder, standing in for the plugin loader.
+     */
+    public final void attach(Server server, File dataFolder) {
+        this.server = server;
+        this.dataFolder = dataFolder;
+        this.description = new PluginDescriptionFile("WanderingTrader", "headless", getClass().getName());
+        this.logger = Logger.getLogger(description.getName());
+    }
+
+    public void onEnable() {
+    }
+
+    public void onDisable() {
+    }
+
+    /**
+     * Runs {@link #onEnable()} the way the plugin manager would.
+     */
+    public final void enable() {
+        onEnable();
+        enabled = true;
+    }
+
+    public final void disable() {
+        enabled = false;
+        onDisable();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Server getServer() {
+        return server;
+    }
+
+    @Override
+    public File getDataFolder() {
+        return dataFolder;
+    }
+
+    @Override
+    public String getName() {
+        return description.getName();
+    }
+
+    @Override
+    public PluginDescriptionFile getDescription() {
+        return description;
+    }
+
+    @Override
+    public PluginDescriptionFile getPluginMeta() {
+        return description;
+    }
+
+    @Override
+    public Logger getLogger() {
+        return logger;
+    }
+
+    @Override
+    public FileConfiguration getConfig() {
+        if (config == null) {
+            reloadConfig();
+        }
+        return config;
+    }
+
+    @Override
+    public void reloadConfig() {
+        config = YamlConfiguration.loadConfiguration(new File(dataFolder, "config.yml"));
+    }
+
+    @Override
+    public void saveDefaultConfig() {
+        File file = new File(dataFolder, "config.yml");
+        if (file.exists()) {
+            return;
+        }
+        try (InputStream in = getResource("config.yml")) {
+            if (in != null) {
+                Files.createDirectories(dataFolder.toPath());
+                Files.copy(in, file.toPath());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public InputStream getResource(String filename) {
+        return getClass().getClassLoader().getResourceAsStream(filename);
+    }
+
+    /**
+     * There is no plugin.yml outside a server, so no commands are registered.
+     */
+    public PluginCommand getCommand(String name) {
+        return null;
+    }
+}
@@ -0,0 +1,80 @@
+package su.brim.benchmark;
+
+import su.brim.config.TradeCatalog;
+import su.brim.model.Trade;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Registry;
+import org.bukkit.enchantments.Enchantment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generated catalogs and configs shared by the benchmarks.
+ * Weights follow a Zipf-like curve so a few trades dominate, like hand-tuned real configs.
+ */
+final class BenchmarkFixtures {
+
+    private static final Material[] RESULTS = {
+            Material.BLAZE_ROD, Material.NETHER_WART, Material.GHAST_TEAR, Material.MAGMA_CREAM,
+            Material.QUARTZ, Material.GLOWSTONE_DUST, Material.SOUL_SAND, Material.NETHERRACK
+    };
+
+    private static final String[] ENCHANTMENTS = {"mending", "unbreaking", "efficiency", "fortune"};
+
+    private BenchmarkFixtures() {
+    }
+
+    static int skewedWeight(int index) {
+        return Math.max(1, (int) (1000 / Math.pow(index + 1, 1.1)));
+    }
+
+    static Trade trade(int index, boolean enchanted) {
+        Material result = enchanted ? Material.ENCHANTED_BOOK : RESULTS[index % RESULTS.length];
+        Map<Enchantment, Integer> enchantments = enchanted
+                ? Map.of(Registry.ENCHANTMENT.get(NamespacedKey.minecraft(ENCHANTMENTS[index % ENCHANTMENTS.length])), 1)
+                : Map.of();
+        return new Trade("trade_" + index, result, 1 + index % 4,
+                Material.DIAMOND, 1 + index % 16,
+                index % 3 == 0 ? Material.GOLD_INGOT : null, index % 3 == 0 ? 2 : 0,
+                3, skewedWeight(index), true, enchantments);
+    }
+
+    static TradeCatalog catalog(int size) {
+        List<Trade> trades = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            trades.add(trade(i, i % 10 == 0));
+        }
+        return new TradeCatalog(trades, 5, 8, true, false, 0L, false);
+    }
+
+    /**
+     * Renders a config.yml with the given number of trades in the same layout as the shipped config.
+     */
+    static String configYaml(int size) {
+        StringBuilder yaml = new StringBuilder(size * 160);
+        yaml.append("settings:\n  min-trades: 5\n  max-trades: 8\n  replace-all-trades: true\n");
+        yaml.append("trades:\n");
+        for (int i = 0; i < size; i++) {
+            boolean enchanted = i % 10 == 0;
+            yaml.append("  trade_").append(i).append(":\n");
+            yaml.append("    enabled: true\n");
+            yaml.append("    result:\n      material: ")
+                    .append(enchanted ? "ENCHANTED_BOOK" : RESULTS[i % RESULTS.length].name())
+                    .append("\n      amount: ").append(1 + i % 4).append('\n');
+            yaml.append("    cost:\n      material: DIAMOND\n      amount: ").append(1 + i % 16).append('\n');
+            if (i % 3 == 0) {
+                yaml.append("    second-cost:\n      material: GOLD_INGOT\n      amount: 2\n");
+            }
+            if (enchanted) {
+                yaml.append("    enchantments:\n      ").append(ENCHANTMENTS[i % ENCHANTMENTS.length].toUpperCase())
+                        .append(": 1\n");
+            }
+            yaml.append("    max-uses: 3\n");
+            yaml.append("    weight: ").append(skewedWeight(i)).append('\n');
+        }
+        return yaml.toString();
+    }
+}
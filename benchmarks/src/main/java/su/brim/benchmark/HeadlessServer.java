@@ -0,0 +1,226 @@
+package su.brim.benchmark;
+
+import io.papermc.paper.threadedregions.scheduler.AsyncScheduler;
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.RegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Server;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.ServicesManager;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Just enough of a Folia server to enable the plugin without one.
+ * The async scheduler runs on a small thread pool and the global region ticks every 50 ms on its own thread.
+ * Region tasks go to whatever executor the caller maps their chunk to, once per tick of that executor.
+ * Anything the plugin calls beyond that fails loudly, so new server dependencies show up in the stress run.
+ */
+final class HeadlessServer {
+
+    private static final long TICK_MILLIS = 50;
+
+    private final ScheduledExecutorService async = Executors.newScheduledThreadPool(4, daemon("Headless-Async"));
+    private final ScheduledExecutorService global = Executors.newSingleThreadScheduledExecutor(daemon("Headless-Global"));
+    private final List<Future<?>> tasks = new CopyOnWriteArrayList<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final Server server;
+
+    /**
+     * @param regionAt Region executor owning a chunk, each task it is given runs on its next tick
+     * @param currentRegion Region executor ticking on the calling thread, null off region threads
+     * @param currentTick Tick of the region ticking on the calling thread
+     */
+    HeadlessServer(BiFunction<Integer, Integer, Executor> regionAt, Supplier<Executor> currentRegion,
+                   IntSupplier currentTick) {
+        AsyncScheduler asyncScheduler = stub(AsyncScheduler.class, Map.of(
+                "runNow", args -> submit(args[0], async.submit(callback(args[1]))),
+                "runDelayed", args -> submit(args[0], async.schedule(callback(args[1]),
+                        (long) args[2], (TimeUnit) args[3])),
+                "runAtFixedRate", args -> submit(args[0], async.scheduleAtFixedRate(callback(args[1]),
+                        (long) args[2], (long) args[3], (TimeUnit) args[4])),
+                "cancelTasks", args -> cancelTasks()));
+        GlobalRegionScheduler globalScheduler = stub(GlobalRegionScheduler.class, Map.of(
+                "execute", args -> {
+                    global.execute(guarded((Runnable) args[1]));
+                    return null;
+                },
+                "run", args -> submit(args[0], global.submit(callback(args[1]))),
+                "runDelayed", args -> submit(args[0], global.schedule(callback(args[1]),
+                        (long) args[2] * TICK_MILLIS, TimeUnit.MILLISECONDS)),
+                "runAtFixedRate", args -> submit(args[0], global.scheduleAtFixedRate(callback(args[1]),
+                        (long) args[2] * TICK_MILLIS, (long) args[3] * TICK_MILLIS, TimeUnit.MILLISECONDS)),
+                "cancelTasks", args -> cancelTasks()));
+        RegionScheduler regionScheduler = stub(RegionScheduler.class, Map.of(
+                "execute", args -> {
+                    regionAt.apply((int) args[2], (int) args[3]).execute(guarded((Runnable) args[4]));
+                    return null;
+                },
+                "run", args -> repeat(regionAt.apply((int) args[2], (int) args[3]), args[4], false),
+                "runAtFixedRate", args -> repeat(regionAt.apply((int) args[2], (int) args[3]), args[4], true)));
+        PluginManager pluginManager = stub(PluginManager.class, Map.of(
+                "registerEvents", args -> listeners.add((Listener) args[0])));
+        ServicesManager servicesManager = stub(ServicesManager.class, Map.of(
+                "register", args -> null,
+                "unregisterAll", args -> null));
+        this.server = stub(Server.class, Map.of(
+                "getAsyncScheduler", args -> asyncScheduler,
+                "getGlobalRegionScheduler", args -> globalScheduler,
+                "getRegionScheduler", args -> regionScheduler,
+                "getPluginManager", args -> pluginManager,
+                "getServicesManager", args -> servicesManager,
+                "getOnlinePlayers", args -> List.of(),
+                "getCurrentTick", args -> currentTick.getAsInt(),
+                // Only the world and chunk form is used by the plugin
+                "isOwnedByCurrentRegion", args -> {
+                    if (args.length != 3) {
+                        throw new UnsupportedOperationException("Server.isOwnedByCurrentRegion is only available by chunk");
+                    }
+                    return regionAt.apply((int) args[1], (int) args[2]) == currentRegion.get();
+                },
+                "getBukkitVersion", args -> "headless"));
+    }
+
+    Server server() {
+        return server;
+    }
+
+    /**
+     * @return The registered listener of the given type
+     */
+    <T extends Listener> T listener(Class<T> type) {
+        for (Listener listener : listeners) {
+            if (type.isInstance(listener)) {
+                return type.cast(listener);
+            }
+        }
+        throw new IllegalStateException(type.getSimpleName() + " was not registered");
+    }
+
+    /**
+     * @return Number of scheduled plugin tasks that threw
+     */
+    int getFailures() {
+        return failures.get();
+    }
+
+    void shutdown() {
+        async.shutdownNow();
+        global.shutdownNow();
+    }
+
+    private ScheduledTask submit(Object plugin, Future<?> future) {
+        tasks.add(future);
+        return stub(ScheduledTask.class, Map.of(
+                "getOwningPlugin", args -> plugin,
+                "isRepeatingTask", args -> false,
+                "isCancelled", args -> future.isCancelled(),
+                "cancel", args -> {
+                    future.cancel(false);
+                    return ScheduledTask.CancelledState.CANCELLED_BY_CALLER;
+                }));
+    }
+
+    /**
+     * Runs a region task on the region's next tick, and on every tick after that if repeating,
+     * until it is cancelled. Delays and periods other than one tick are not needed by the plugin.
+     */
+    private ScheduledTask repeat(Executor region, Object callback, boolean repeating) {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        ScheduledTask task = stub(ScheduledTask.class, Map.of(
+                "isRepeatingTask", args -> repeating,
+                "isCancelled", args -> cancelled.get(),
+                "cancel", args -> {
+                    cancelled.set(true);
+                    return ScheduledTask.CancelledState.CANCELLED_BY_CALLER;
+                }));
+        @SuppressWarnings("unchecked")
+        Consumer<ScheduledTask> consumer = (Consumer<ScheduledTask>) callback;
+        region.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (cancelled.get()) {
+                    return;
+                }
+                guarded(() -> consumer.accept(task)).run();
+                if (repeating && !cancelled.get()) {
+                    region.execute(this);
+                }
+            }
+        });
+        return task;
+    }
+
+    private Object cancelTasks() {
+        for (Future<?> task : tasks) {
+            task.cancel(false);
+        }
+        tasks.clear();
+        return null;
+    }
+
+    // Executors swallow exceptions into futures nobody reads, so count and print them here
+    private Runnable guarded(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                failures.incrementAndGet();
+                e.printStackTrace();
+            }
+        };
+    }
+
+    // Plugin callbacks never use the task they are handed, none of them cancel themselves
+    @SuppressWarnings("unchecked")
+    private Runnable callback(Object callback) {
+        return guarded(() -> ((Consumer<ScheduledTask>) callback).accept(null));
+    }
+
+    /**
+     * Implements an interface with the given methods, matched by name.
+     * Object methods behave like identity; everything else throws.
+     */
+    static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            Function<Object[], Object> implementation = methods.get(method.getName());
+            if (implementation != null) {
+                return implementation.apply(args);
+            }
+            return switch (method.getName()) {
+                case "hashCode" -> System.identityHashCode(self);
+                case "equals" -> self == args[0];
+                case "toString" -> "Headless" + type.getSimpleName();
+                default -> throw new UnsupportedOperationException(
+                        type.getSimpleName() + "." + method.getName() + " is not available headless");
+            };
+        });
+        return type.cast(proxy);
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
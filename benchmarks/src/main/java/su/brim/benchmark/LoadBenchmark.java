@@ -0,0 +1,63 @@
+package su.brim.benchmark;
+
+import su.brim.config.TradeCatalog;
+import su.brim.config.TradeLoader;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loading large generated configs, split into YAML parsing and catalog building.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int tradeCount;
+
+    private String yaml;
+    private YamlConfiguration parsed;
+    private TradeLoader loader;
+
+    @Setup
+    public void setUp() throws InvalidConfigurationException {
+        yaml = BenchmarkFixtures.configYaml(tradeCount);
+        parsed = new YamlConfiguration();
+        parsed.loadFromString(yaml);
+
+        Logger logger = Logger.getLogger("WanderingTraderBenchmark");
+        logger.setLevel(Level.OFF);
+        loader = new TradeLoader(logger);
+    }
+
+    @Benchmark
+    public TradeCatalog loadParsedConfig() {
+        return loader.load(parsed);
+    }
+
+    @Benchmark
+    public TradeCatalog parseYamlAndLoad() throws InvalidConfigurationException {
+        YamlConfiguration config = new YamlConfiguration();
+        config.loadFromString(yaml);
+        return loader.load(config);
+    }
+}
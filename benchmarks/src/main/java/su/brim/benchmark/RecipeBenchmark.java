@@ -0,0 +1,44 @@
+package su.brim.benchmark;
+
+import su.brim.model.Trade;
+import org.bukkit.inventory.MerchantRecipe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building merchant recipes from loaded trades, the per-trade cost of every spawn.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecipeBenchmark {
+
+    @Param({"false", "true"})
+    public boolean enchanted;
+
+    private Trade trade;
+
+    @Setup
+    public void setUp() {
+        trade = BenchmarkFixtures.trade(0, enchanted);
+    }
+
+    @Benchmark
+    public MerchantRecipe toMerchantRecipe() {
+        return trade.toMerchantRecipe();
+    }
+}
@@ -0,0 +1,74 @@
+package su.brim.benchmark;
+
+import su.brim.config.TradeCatalog;
+import su.brim.model.Trade;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trade selection over skewed catalogs, compared against the expanded weighted pool it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SelectionBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int catalogSize;
+
+    private TradeCatalog catalog;
+
+    @Setup
+    public void setUp() {
+        catalog = BenchmarkFixtures.catalog(catalogSize);
+    }
+
+    @Benchmark
+    public List<Trade> compiledSampler() {
+        return catalog.selectRandomTrades(ThreadLocalRandom.current());
+    }
+
+    @Benchmark
+    public List<Trade> expandedPoolBaseline() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Trade> trades = catalog.getTrades();
+        int numTrades = catalog.getMinTrades()
+                + random.nextInt(Math.max(1, catalog.getMaxTrades() - catalog.getMinTrades() + 1));
+        numTrades = Math.min(numTrades, trades.size());
+
+        // Previous implementation: one pool entry per unit of weight, rebuilt for every pick
+        List<Trade> selected = new ArrayList<>();
+        List<Trade> availableTrades = new ArrayList<>(trades);
+        for (int i = 0; i < numTrades && !availableTrades.isEmpty(); i++) {
+            List<Trade> currentPool = new ArrayList<>();
+            for (Trade trade : availableTrades) {
+                for (int j = 0; j < trade.getWeight(); j++) {
+                    currentPool.add(trade);
+                }
+            }
+            if (currentPool.isEmpty()) break;
+
+            Trade selectedTrade = currentPool.get(random.nextInt(currentPool.size()));
+            selected.add(selectedTrade);
+            availableTrades.remove(selectedTrade);
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,359 @@
+package su.brim.benchmark;
+
+import su.brim.WanderingTraderPlugin;
+import su.brim.config.TradeCatalog;
+import su.brim.listener.WanderingTraderListener;
+import su.brim.scheduler.SpawnAdmission;
+import org.bukkit.NamespacedKey;
+import org.bukkit.event.entity.CreatureSpawnEvent;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Spawn-storm stress run of the real plugin against a headless server.
+ * Region threads fire trader spawn events as fast as they can while another thread keeps reloading
+ * a changing config.yml. Some spawns are delivered twice or removed before their entity task runs.
+ * Afterwards every trader is checked for duplicate or missing application, offers from an empty
+ * catalog and access from a foreign thread. Exits with status 1 if any check failed.
+ * A scaled-down run is part of the benchmark module's tests, see {@code SpawnStormTest}.
+ *
+ * <pre>java -cp benchmarks.jar su.brim.benchmark.SpawnStorm [--traders=200000] [--regions=8] [--virtual]</pre>
+ */
+public final class SpawnStorm {
+
+    // Each region owns a 256 chunk wide strip along x, so region tasks can be routed by chunk
+    private static final int REGION_CHUNK_SHIFT = 8;
+
+    private final int regionCount;
+    private final int traderCount;
+    private final int spawnsPerTick;
+    private final double duplicateRate;
+    private final double removeRate;
+    private final long reloadMillis;
+    private final boolean virtualThreads;
+
+    private final AtomicInteger violations = new AtomicInteger();
+    private final AtomicInteger emptyReads = new AtomicInteger();
+    private final AtomicInteger warnings = new AtomicInteger();
+    private final AtomicInteger regionFailures = new AtomicInteger();
+    private final AtomicInteger reloads = new AtomicInteger();
+    private final Set<Integer> versions = ConcurrentHashMap.newKeySet();
+
+    private WanderingTraderPlugin plugin;
+    private WanderingTraderListener listener;
+    private StubTrader[] traders;
+    private volatile boolean storming;
+
+    SpawnStorm(String[] args) {
+        this.regionCount = (int) option(args, "regions", Math.max(2, Runtime.getRuntime().availableProcessors()));
+        this.traderCount = (int) option(args, "traders", 200_000);
+        this.spawnsPerTick = (int) option(args, "spawns-per-tick", 64);
+        this.duplicateRate = option(args, "duplicates", 0.1);
+        this.removeRate = option(args, "removed", 0.02);
+        this.reloadMillis = (long) option(args, "reload-ms", 20);
+        this.virtualThreads = Arrays.asList(args).contains("--virtual");
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.exit(new SpawnStorm(args).run() ? 0 : 1);
+    }
+
+    /**
+     * Runs the storm and prints its report.
+     * @return true if every check passed
+     */
+    boolean run() throws Exception {
+        Path dataFolder = Files.createTempDirectory("wanderingtrader-storm");
+        Files.writeString(dataFolder.resolve("config.yml"), config(0), StandardCharsets.UTF_8);
+
+        traders = new StubTrader[traderCount];
+        Region[] regions = new Region[regionCount];
+        for (int i = 0; i < regionCount; i++) {
+            regions[i] = new Region(i);
+        }
+
+        HeadlessServer server = new HeadlessServer(
+                (chunkX, chunkZ) -> regions[Math.floorMod(chunkX >> REGION_CHUNK_SHIFT, regionCount)],
+                Region::current,
+                () -> Region.current() != null ? Region.current().tick : 0);
+        plugin = new WanderingTraderPlugin();
+        plugin.attach(server.server(), dataFolder.toFile());
+        plugin.getLogger().addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
+                    warnings.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        plugin.enable();
+        listener = server.listener(WanderingTraderListener.class);
+        versions.add(plugin.getTradeConfig().getCatalog().getVersion());
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < regionCount; i++) {
+            Thread.Builder builder = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform();
+            threads.add(builder.name("Region-" + i).unstarted(regions[i]));
+        }
+        Thread reloader = Thread.ofPlatform().name("Reloader").daemon().unstarted(this::reloadLoop);
+
+        System.out.printf("Storming %,d traders over %d %s regions, reloading every %d ms%n",
+                traderCount, regionCount, virtualThreads ? "virtual" : "platform", reloadMillis);
+        storming = true;
+        long start = System.nanoTime();
+        reloader.start();
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        storming = false;
+        reloader.join();
+
+        plugin.disable();
+        server.shutdown();
+        return report(regions, elapsed, server.getFailures(), plugin.getAdmission());
+    }
+
+    private void reloadLoop() {
+        int variant = 0;
+        while (storming) {
+            variant ^= 1;
+            try {
+                Files.writeString(plugin.getDataFolder().toPath().resolve("config.yml"), config(variant),
+                        StandardCharsets.UTF_8);
+                versions.add(plugin.reloadTradeConfig().join().getVersion());
+                reloads.incrementAndGet();
+            } catch (IOException | CompletionException e) {
+                // Counted through the warning the plugin logs
+                warnings.incrementAndGet();
+            }
+            try {
+                Thread.sleep(reloadMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Two configs that differ in size and weights, so every reload publishes a new catalog version.
+     */
+    private static String config(int variant) {
+        return BenchmarkFixtures.configYaml(variant == 0 ? 120 : 150);
+    }
+
+    private boolean report(Region[] regions, long elapsedNanos, int serverFailures, SpawnAdmission admission) {
+        NamespacedKey appliedKey = new NamespacedKey(plugin, "trades_applied");
+        int duplicates = 0;
+        int lost = 0;
+        int afterRemoval = 0;
+        int badOffers = 0;
+        int unknownVersion = 0;
+        int removed = 0;
+        long[] spawnToApply = new long[traderCount];
+        int applied = 0;
+        for (StubTrader trader : traders) {
+            if (trader.isRemoved()) {
+                removed++;
+                if (trader.getApplications() > 0) {
+                    afterRemoval++;
+                }
+                continue;
+            }
+            if (trader.getApplications() == 0) {
+                lost++;
+                continue;
+            }
+            if (trader.getApplications() > 1) {
+                duplicates++;
+            }
+            if (trader.getRecipeCount() < 5 || trader.getRecipeCount() > 8) {
+                badOffers++;
+            }
+            if (!versions.contains(trader.getData(appliedKey))) {
+                unknownVersion++;
+            }
+            spawnToApply[applied++] = trader.getSpawnToApplyNanos();
+        }
+
+        long[] handler = Arrays.stream(regions)
+                .flatMapToLong(region -> Arrays.stream(region.handlerNanos, 0, region.spawned))
+                .sorted().toArray();
+        spawnToApply = Arrays.copyOf(spawnToApply, applied);
+        Arrays.sort(spawnToApply);
+
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        long events = Arrays.stream(regions).mapToLong(region -> region.events).sum();
+        System.out.printf("%,d spawns (%,d events) in %.2fs: %,.0f spawns/s, %d reloads%n",
+                traderCount, events, seconds, traderCount / seconds, reloads.get());
+        System.out.println("Spawn handler:   " + percentiles(handler));
+        System.out.println("Spawn to apply:  " + percentiles(spawnToApply));
+        System.out.printf("Removed before apply: %,d, deferred by admission: %,d (peak queue %,d)%n",
+                removed, admission.getDeferredCount(), admission.getPeakQueuedCount());
+
+        boolean passed = true;
+        passed &= check("Duplicate applications", duplicates);
+        passed &= check("Claimed traders never applied", lost);
+        passed &= check("Applied after removal", afterRemoval);
+        passed &= check("Offers outside min/max trades", badOffers);
+        passed &= check("Offers from an unpublished catalog", unknownVersion);
+        passed &= check("Empty catalog reads", emptyReads.get());
+        passed &= check("Access outside the owning region", violations.get());
+        passed &= check("Warnings logged", warnings.get());
+        passed &= check("Left in the admission queue", admission.getQueuedCount());
+        passed &= check("Failed tasks", serverFailures + regionFailures.get());
+        System.out.println(passed ? "PASSED" : "FAILED");
+        return passed;
+    }
+
+    private static boolean check(String name, int failures) {
+        System.out.printf("  %-36s %s%n", name + ":", failures == 0 ? "ok" : failures + " FAILED");
+        return failures == 0;
+    }
+
+    private static String percentiles(long[] sorted) {
+        if (sorted.length == 0) {
+            return "no samples";
+        }
+        return String.format("p50 %s, p99 %s, p99.9 %s, max %s",
+                micros(sorted, 0.5), micros(sorted, 0.99), micros(sorted, 0.999), micros(sorted, 1.0));
+    }
+
+    private static String micros(long[] sorted, double quantile) {
+        int index = (int) Math.min(sorted.length - 1, (long) (quantile * sorted.length));
+        return String.format("%.1fµs", sorted[index] / 1000.0);
+    }
+
+    private static double option(String[] args, String name, double defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return Double.parseDouble(arg.substring(prefix.length()));
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * One simulated region. Each tick first runs the entity tasks scheduled during the previous one,
+     * then fires its share of spawn events, until all of its traders are spawned and processed.
+     */
+    final class Region implements Runnable, Executor {
+
+        private static final ThreadLocal<Region> CURRENT = new ThreadLocal<>();
+
+        private final int id;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final SplittableRandom random;
+        private final long[] handlerNanos;
+        private int spawned;
+        private long events;
+        private int tick;
+
+        Region(int id) {
+            this.id = id;
+            this.random = new SplittableRandom(id);
+            this.handlerNanos = new long[(traderCount + regionCount - 1) / regionCount];
+        }
+
+        static Region current() {
+            return CURRENT.get();
+        }
+
+        /**
+         * Queues a task for this region's next tick. Safe to call from any thread.
+         */
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        @Override
+        public void run() {
+            CURRENT.set(this);
+            int index = id;
+            while (index < traderCount || !tasks.isEmpty()) {
+                tick++;
+                runTasks();
+                for (int i = 0; i < spawnsPerTick && index < traderCount; i++, index += regionCount) {
+                    spawn(index);
+                }
+            }
+        }
+
+        private void runTasks() {
+            // Only what was queued before this tick; tasks queued now wait for the next one
+            for (int pending = tasks.size(); pending > 0; pending--) {
+                try {
+                    tasks.poll().run();
+                } catch (Throwable e) {
+                    regionFailures.incrementAndGet();
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        private void spawn(int index) {
+            int strip = 16 << REGION_CHUNK_SHIFT;
+            StubTrader trader = new StubTrader(new UUID(id, index), this,
+                    id * strip + random.nextInt(strip), random.nextInt(strip), violations);
+            traders[index] = trader;
+
+            TradeCatalog catalog = plugin.getTradeConfig().getCatalog();
+            if (catalog.size() == 0) {
+                emptyReads.incrementAndGet();
+            }
+
+            long start = System.nanoTime();
+            trader.spawned(start);
+            fire(trader);
+            handlerNanos[spawned++] = System.nanoTime() - start;
+
+            if (random.nextDouble() < duplicateRate) {
+                // Delivered again right away, and once more after the trader was processed
+                fire(trader);
+                execute(() -> fire(trader));
+            }
+            if (random.nextDouble() < removeRate) {
+                trader.remove();
+            }
+        }
+
+        private void fire(StubTrader trader) {
+            events++;
+            try {
+                listener.onCreatureSpawn(new CreatureSpawnEvent(trader.entity(), CreatureSpawnEvent.SpawnReason.NATURAL));
+            } catch (Throwable e) {
+                regionFailures.incrementAndGet();
+                e.printStackTrace();
+            }
+        }
+    }
+}
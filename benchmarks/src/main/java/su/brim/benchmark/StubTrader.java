@@ -0,0 +1,175 @@
+package su.brim.benchmark;
+
+import io.papermc.paper.threadedregions.scheduler.EntityScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.WanderingTrader;
+import org.bukkit.inventory.MerchantRecipe;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static su.brim.benchmark.HeadlessServer.stub;
+
+/**
+ * Headless wandering trader owned by one storm region.
+ * Its data container and recipes are plain unsynchronized state, like on a real server, and every
+ * access from a thread other than the owning region is counted as a confinement violation.
+ * Tasks on its entity scheduler run on the owning region's next tick, or are retired if it was removed.
+ */
+final class StubTrader {
+
+    private static final World WORLD = stub(World.class, Map.of(
+            "getName", args -> "world",
+            "getUID", args -> new UUID(0, 0),
+            "getEnvironment", args -> World.Environment.NORMAL,
+            "getSeed", args -> 42L));
+
+    private static final ScheduledTask SCHEDULED = stub(ScheduledTask.class, Map.of());
+
+    private final UUID id;
+    private final SpawnStorm.Region region;
+    private final Location location;
+    private final AtomicInteger violations;
+    private final WanderingTrader entity;
+
+    // Owning region only
+    private final Map<NamespacedKey, Object> data = new HashMap<>();
+    private List<MerchantRecipe> recipes = List.of();
+    private int applications;
+    private long spawnedAt;
+    private long appliedAt;
+
+    private volatile boolean removed;
+
+    StubTrader(UUID id, SpawnStorm.Region region, int x, int z, AtomicInteger violations) {
+        this.id = id;
+        this.region = region;
+        this.location = new Location(WORLD, x, 64, z);
+        this.violations = violations;
+
+        PersistentDataContainer container = stub(PersistentDataContainer.class, Map.of(
+                "has", args -> {
+                    checkOwner();
+                    Object value = data.get((NamespacedKey) args[0]);
+                    return value != null && (args.length == 1 || complexType(args[1]).isInstance(value));
+                },
+                "get", args -> {
+                    checkOwner();
+                    Object value = data.get((NamespacedKey) args[0]);
+                    return complexType(args[1]).isInstance(value) ? value : null;
+                },
+                "getOrDefault", args -> {
+                    checkOwner();
+                    Object value = data.get((NamespacedKey) args[0]);
+                    return complexType(args[1]).isInstance(value) ? value : args[2];
+                },
+                "set", args -> {
+                    checkOwner();
+                    data.put((NamespacedKey) args[0], args[2]);
+                    return null;
+                },
+                "remove", args -> {
+                    checkOwner();
+                    data.remove((NamespacedKey) args[0]);
+                    return null;
+                }));
+        EntityScheduler scheduler = stub(EntityScheduler.class, Map.of(
+                "run", args -> schedule(args[1], (Runnable) args[2])));
+        this.entity = stub(WanderingTrader.class, Map.of(
+                "getType", args -> EntityType.WANDERING_TRADER,
+                "getUniqueId", args -> id,
+                "getLocation", args -> location.clone(),
+                "getWorld", args -> WORLD,
+                "isValid", args -> !removed,
+                "getPersistentDataContainer", args -> container,
+                "getScheduler", args -> scheduler,
+                "getRecipes", args -> {
+                    checkOwner();
+                    return recipes;
+                },
+                "setRecipes", args -> {
+                    checkOwner();
+                    @SuppressWarnings("unchecked")
+                    List<MerchantRecipe> list = (List<MerchantRecipe>) args[0];
+                    recipes = List.copyOf(list);
+                    applications++;
+                    appliedAt = System.nanoTime();
+                    return null;
+                }));
+    }
+
+    WanderingTrader entity() {
+        return entity;
+    }
+
+    void spawned(long nanos) {
+        spawnedAt = nanos;
+    }
+
+    void remove() {
+        removed = true;
+    }
+
+    boolean isRemoved() {
+        return removed;
+    }
+
+    // The getters below are read by the storm after all regions have stopped
+
+    int getApplications() {
+        return applications;
+    }
+
+    int getRecipeCount() {
+        return recipes.size();
+    }
+
+    Object getData(NamespacedKey key) {
+        return data.get(key);
+    }
+
+    /**
+     * @return Nanoseconds from the spawn event to the recipes being set
+     */
+    long getSpawnToApplyNanos() {
+        return appliedAt - spawnedAt;
+    }
+
+    private ScheduledTask schedule(Object task, Runnable retired) {
+        if (removed) {
+            return null;
+        }
+        region.execute(() -> {
+            if (removed) {
+                if (retired != null) {
+                    retired.run();
+                }
+                return;
+            }
+            @SuppressWarnings("unchecked")
+            Consumer<ScheduledTask> callback = (Consumer<ScheduledTask>) task;
+            callback.accept(SCHEDULED);
+        });
+        return SCHEDULED;
+    }
+
+    private void checkOwner() {
+        if (SpawnStorm.Region.current() != region) {
+            violations.incrementAndGet();
+        }
+    }
+
+    private static Class<?> complexType(Object type) {
+        return ((PersistentDataType<?, ?>) type).getComplexType();
+    }
+}
@@ -0,0 +1,29 @@
+package su.brim.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Scaled-down {@link SpawnStorm}, so the concurrency checks run on every build.
+ * Large runs still go through {@link SpawnStorm#main}.
+ */
+class SpawnStormTest {
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.MINUTES)
+    void smallStormPassesEveryCheck() throws Exception {
+        SpawnStorm storm = new SpawnStorm(new String[]{"--traders=20000", "--regions=4", "--reload-ms=5"});
+        assertTrue(storm.run(), "Spawn storm checks failed, see the report above");
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.MINUTES)
+    void smallStormOnVirtualThreadsPassesEveryCheck() throws Exception {
+        SpawnStorm storm = new SpawnStorm(new String[]{"--traders=20000", "--regions=4", "--reload-ms=5", "--virtual"});
+        assertTrue(storm.run(), "Spawn storm checks failed, see the report above");
+    }
+}
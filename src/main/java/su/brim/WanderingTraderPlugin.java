@@ -1,17 +1,46 @@
 package su.brim;
 
+import su.brim.api.TradeProvider;
+import su.brim.audit.PurchaseLog;
 import su.brim.command.WanderingTraderCommand;
+import su.brim.config.ConfigWatcher;
+import su.brim.config.TradeCatalog;
 import su.brim.config.TradeConfig;
+import su.brim.config.TradeRegistry;
+import su.brim.listener.PurchaseListener;
+import su.brim.listener.TradeApplier;
 import su.brim.listener.WanderingTraderListener;
+import su.brim.metrics.TradeMetrics;
+import su.brim.pricing.DynamicPricing;
+import su.brim.scheduler.RestockEngine;
+import su.brim.scheduler.SpawnAdmission;
+import su.brim.scheduler.TraderRerollQueue;
+import su.brim.stock.GlobalStock;
+import su.brim.trace.TraceBuffer;
 import org.bukkit.command.PluginCommand;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 public class WanderingTraderPlugin extends JavaPlugin {
 
     private static WanderingTraderPlugin instance;
     private TradeConfig tradeConfig;
+    private TradeMetrics metrics;
+    private TraceBuffer trace;
+    private TraderRerollQueue rerollQueue;
+    private SpawnAdmission admission;
+    private GlobalStock globalStock;
+    private DynamicPricing pricing;
+    private PurchaseLog purchaseLog;
+    private RestockEngine restock;
+    private ConfigWatcher configWatcher;
 
     @Override
     public void onEnable() {
@@ -20,12 +49,43 @@ public class WanderingTraderPlugin extends JavaPlugin {
         // Save default config
         saveDefaultConfig();
         
+        // Sampled event trace, see /wanderingtrader trace
+        trace = new TraceBuffer(this);
+        
+        // Runtime metrics, optionally dumped to a file on an async thread
+        metrics = new TradeMetrics();
+        scheduleMetricsDump();
+        
+        // Server-wide supply of trades with a global stock limit, matched to every published catalog
+        globalStock = new GlobalStock(this);
+        
         // Load trade configuration
         tradeConfig = new TradeConfig(this);
         tradeConfig.loadTrades();
+        globalStock.start();
+        
+        // Demand-driven prices, aggregated from purchases on an async thread
+        pricing = new DynamicPricing(this);
+        pricing.start();
+        
+        // Purchase audit trail, written by one background writer
+        purchaseLog = new PurchaseLog(this);
+        purchaseLog.start();
+        
+        // Periodic restock of offers of trades with a restock interval
+        restock = new RestockEngine(this);
+        
+        // Trade application and background re-roll of traders with outdated offers
+        TradeApplier applier = new TradeApplier(this);
+        rerollQueue = new TraderRerollQueue(this, applier);
+        rerollQueue.start();
+        
+        // Per-region limit on traders getting their trades each tick, the rest wait in line
+        admission = new SpawnAdmission(this, applier);
         
         // Register event listener
-        getServer().getPluginManager().registerEvents(new WanderingTraderListener(this), this);
+        getServer().getPluginManager().registerEvents(new WanderingTraderListener(this, applier, rerollQueue, admission), this);
+        getServer().getPluginManager().registerEvents(new PurchaseListener(applier, globalStock, pricing, purchaseLog), this);
         
         // Register command
         PluginCommand command = getCommand("wanderingtrader");
@@ -35,12 +95,30 @@ public class WanderingTraderPlugin extends JavaPlugin {
             command.setTabCompleter(cmdExecutor);
         }
         
+        // Trades added by other plugins, see TradeProvider
+        TradeRegistry registry = new TradeRegistry(this);
+        getServer().getPluginManager().registerEvents(registry, this);
+        getServer().getServicesManager().register(TradeProvider.class, registry, this, ServicePriority.Normal);
+        
+        // Optional reload on config.yml edits
+        configWatcher = new ConfigWatcher(this);
+        configWatcher.start();
+        
         getLogger().info("WanderingTrader enabled! Wandering Traders will now sell Nether items for diamonds.");
         getLogger().info("Loaded " + tradeConfig.getAllTrades().size() + " custom trades.");
     }
 
     @Override
     public void onDisable() {
+        if (configWatcher != null) {
+            configWatcher.stop();
+        }
+        getServer().getServicesManager().unregisterAll(this);
+        getServer().getAsyncScheduler().cancelTasks(this);
+        getServer().getGlobalRegionScheduler().cancelTasks(this);
+        if (purchaseLog != null) {
+            purchaseLog.close();
+        }
         getLogger().info("WanderingTrader disabled.");
     }
 
@@ -52,9 +130,72 @@ public class WanderingTraderPlugin extends JavaPlugin {
         return tradeConfig;
     }
 
-    public void reloadTradeConfig() {
-        reloadConfig();
-        tradeConfig.loadTrades();
-        getLogger().info("Reloaded " + tradeConfig.getAllTrades().size() + " custom trades.");
+    public TradeMetrics getMetrics() {
+        return metrics;
+    }
+
+    public TraceBuffer getTrace() {
+        return trace;
+    }
+
+    public TraderRerollQueue getRerollQueue() {
+        return rerollQueue;
+    }
+
+    public SpawnAdmission getAdmission() {
+        return admission;
+    }
+
+    public GlobalStock getGlobalStock() {
+        return globalStock;
+    }
+
+    public DynamicPricing getPricing() {
+        return pricing;
+    }
+
+    public PurchaseLog getPurchaseLog() {
+        return purchaseLog;
+    }
+
+    public RestockEngine getRestock() {
+        return restock;
+    }
+
+    private void scheduleMetricsDump() {
+        long interval = getConfig().getLong("metrics.dump-interval-seconds", 0L);
+        if (interval <= 0) {
+            return;
+        }
+
+        File dumpFile = new File(getDataFolder(), getConfig().getString("metrics.dump-file", "metrics.log"));
+        getServer().getAsyncScheduler().runAtFixedRate(this, task -> {
+            try {
+                metrics.appendReport(dumpFile.toPath());
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING, "Failed to write metrics to " + dumpFile.getName(), e);
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Reloads trades off-thread. Spawns keep using the previous catalog until the new one is published.
+     * @return Future completed with the new catalog, or exceptionally if config.yml could not be loaded
+     */
+    public CompletableFuture<TradeCatalog> reloadTradeConfig() {
+        return tradeConfig.reloadTradesAsync().whenComplete((catalog, error) -> {
+            if (error != null) {
+                getLogger().log(Level.WARNING, "Failed to reload config.yml, keeping previous trades", error);
+            } else {
+                getLogger().info("Reloaded " + catalog.size() + " custom trades.");
+                List<String> restartPending = tradeConfig.getRestartPending();
+                if (!restartPending.isEmpty()) {
+                    getLogger().warning("Changes to " + String.join(", ", restartPending)
+                            + " in config.yml are only applied on restart.");
+                }
+                // Existing traders near players pick up the new offers in the background
+                rerollQueue.sweep();
+            }
+        });
     }
 }
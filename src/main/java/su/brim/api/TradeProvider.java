@@ -0,0 +1,40 @@
+package su.brim.api;
+
+import su.brim.config.TradeCatalog;
+import su.brim.model.Trade;
+import org.bukkit.plugin.Plugin;
+
+import java.util.List;
+
+/**
+ * Lets other plugins add trades next to the ones configured in config.yml.
+ * Registered through Bukkit's ServicesManager:
+ * <pre>{@code
+ * TradeProvider provider = Bukkit.getServicesManager().load(TradeProvider.class);
+ * provider.begin(this)
+ *         .registerAll(seasonalTrades)
+ *         .remove("last_season_trade")
+ *         .commit();
+ * }</pre>
+ * Changes are grouped in transactions. Each commit publishes one new immutable catalog,
+ * which traders rolling afterwards use; traders never see a half-applied transaction.
+ * Trades of a plugin are removed when it is disabled. Thread-safe.
+ */
+public interface TradeProvider {
+
+    /**
+     * @return The catalog currently offered to traders, config.yml trades first
+     */
+    TradeCatalog getCatalog();
+
+    /**
+     * @return Trades currently registered by the plugin, ordered by id
+     */
+    List<Trade> getTrades(Plugin owner);
+
+    /**
+     * Starts a transaction over the trades registered by the plugin.
+     * Nothing is visible to traders until {@link TradeTransaction#commit()}.
+     */
+    TradeTransaction begin(Plugin owner);
+}
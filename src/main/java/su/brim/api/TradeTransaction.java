@@ -0,0 +1,41 @@
+package su.brim.api;
+
+import su.brim.config.TradeCatalog;
+import su.brim.model.Trade;
+
+import java.util.Collection;
+
+/**
+ * Batch of trade registrations and removals of one plugin, applied together on {@link #commit()}.
+ * Trade ids must be unique across the server; a registered trade whose id is used by config.yml
+ * or by another plugin is ignored with a warning.
+ * Not thread-safe: build and commit a transaction on one thread.
+ */
+public interface TradeTransaction {
+
+    /**
+     * Adds a trade, replacing one with the same id registered by the same plugin.
+     * Disabled trades are kept but never offered.
+     */
+    TradeTransaction register(Trade trade);
+
+    TradeTransaction registerAll(Collection<? extends Trade> trades);
+
+    /**
+     * Removes a trade registered by the same plugin. Unknown ids are ignored.
+     */
+    TradeTransaction remove(String id);
+
+    /**
+     * Removes every trade registered by the same plugin, including ones committed before.
+     */
+    TradeTransaction clear();
+
+    /**
+     * Applies every change of the transaction at once and publishes the resulting catalog.
+     * Concurrent commits of different plugins are applied one after the other.
+     * @return The published catalog
+     * @throws IllegalStateException if the transaction was already committed
+     */
+    TradeCatalog commit();
+}
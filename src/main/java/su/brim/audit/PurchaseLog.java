@@ -0,0 +1,190 @@
+package su.brim.audit;
+
+import su.brim.WanderingTraderPlugin;
+import su.brim.model.Trade;
+import org.bukkit.Location;
+import org.bukkit.entity.AbstractVillager;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.MerchantRecipe;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Append-only NDJSON log of purchases from wandering traders.
+ * Region threads only enqueue a record into a bounded queue and never wait: when the queue is full
+ * the record is dropped and counted. One writer drains the queue in batches, writes each batch with
+ * a single fsync (group commit) and rotates files by size and age.
+ */
+public class PurchaseLog {
+
+    private static final DateTimeFormatter FILE_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneId.systemDefault());
+
+    private final WanderingTraderPlugin plugin;
+    private final boolean enabled;
+    private final Path directory;
+    private final int capacity;
+    private final long flushMillis;
+    private final long maxFileBytes;
+    private final long rotateMillis;
+
+    private final Queue<PurchaseRecord> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    // Writer state, only touched while holding this object's monitor
+    private final StringBuilder batch = new StringBuilder();
+    private FileChannel channel;
+    private long fileBytes;
+    private long openedAt;
+
+    public PurchaseLog(WanderingTraderPlugin plugin) {
+        this.plugin = plugin;
+        this.enabled = plugin.getConfig().getBoolean("audit.enabled", false);
+        this.directory = plugin.getDataFolder().toPath().resolve(plugin.getConfig().getString("audit.directory", "audit"));
+        this.capacity = Math.max(1, plugin.getConfig().getInt("audit.queue-capacity", 8192));
+        this.flushMillis = Math.max(10, plugin.getConfig().getLong("audit.flush-interval-ms", 200L));
+        this.maxFileBytes = Math.max(1, plugin.getConfig().getLong("audit.max-file-size-mb", 64L)) * 1024 * 1024;
+        this.rotateMillis = Math.max(1, plugin.getConfig().getLong("audit.rotate-hours", 24L)) * 3_600_000L;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts the writer, which commits queued records every flush interval.
+     */
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        plugin.getServer().getAsyncScheduler().runAtFixedRate(plugin, task -> flush(),
+                flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues a completed purchase. Must run on the trader's region thread; never blocks.
+     */
+    public void record(Player player, AbstractVillager trader, Trade trade, MerchantRecipe recipe) {
+        if (!enabled) {
+            return;
+        }
+        if (queued.incrementAndGet() > capacity) {
+            queued.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+
+        Location location = trader.getLocation();
+        List<ItemStack> ingredients = recipe.getIngredients();
+        queue.offer(new PurchaseRecord(System.currentTimeMillis(),
+                player.getUniqueId(), player.getName(), trade.getId(),
+                location.getWorld() != null ? location.getWorld().getName() : "",
+                location.getBlockX(), location.getBlockY(), location.getBlockZ(),
+                recipe.getResult().getAmount(),
+                ingredients.isEmpty() ? 0 : ingredients.get(0).getAmount()));
+    }
+
+    /**
+     * Writes everything queued so far as one batch and syncs it to disk.
+     */
+    public synchronized void flush() {
+        int count = 0;
+        for (PurchaseRecord record; (record = queue.poll()) != null; ) {
+            record.appendJson(batch);
+            count++;
+        }
+        if (count == 0) {
+            return;
+        }
+        queued.addAndGet(-count);
+
+        ByteBuffer bytes = ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.UTF_8));
+        batch.setLength(0);
+        try {
+            rotateIfNeeded();
+            while (bytes.hasRemaining()) {
+                fileBytes += channel.write(bytes);
+            }
+            // One fsync commits the whole batch
+            channel.force(false);
+            written.add(count);
+        } catch (IOException e) {
+            dropped.add(count);
+            plugin.getLogger().log(Level.WARNING, "Failed to write purchase audit log", e);
+            closeChannel();
+        }
+    }
+
+    /**
+     * Commits what is left in the queue and closes the current file.
+     */
+    public synchronized void close() {
+        if (!enabled) {
+            return;
+        }
+        flush();
+        closeChannel();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    private void rotateIfNeeded() throws IOException {
+        long now = System.currentTimeMillis();
+        if (channel != null && fileBytes < maxFileBytes && now - openedAt < rotateMillis) {
+            return;
+        }
+        closeChannel();
+        Files.createDirectories(directory);
+        String name = "purchases-" + FILE_TIME.format(Instant.ofEpochMilli(now));
+        Path file = directory.resolve(name + ".ndjson");
+        // Rotating again within the same second, or onto a file filled before a restart, moves on to a numbered file
+        for (int sequence = 1; Files.exists(file) && Files.size(file) >= maxFileBytes; sequence++) {
+            file = directory.resolve(name + "-" + sequence + ".ndjson");
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileBytes = channel.size();
+        openedAt = now;
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to close purchase audit log", e);
+        }
+        channel = null;
+    }
+}
@@ -0,0 +1,54 @@
+package su.brim.audit;
+
+import java.util.UUID;
+
+/**
+ * One purchase from a wandering trader, captured on the region thread.
+ * Holds plain values only, so the writer thread never touches live game objects.
+ */
+record PurchaseRecord(long time, UUID playerId, String playerName, String tradeId,
+                      String world, int x, int y, int z,
+                      int resultAmount, int costAmount) {
+
+    /**
+     * Appends the record as one NDJSON line.
+     */
+    void appendJson(StringBuilder out) {
+        out.append("{\"time\":").append(time)
+                .append(",\"player\":\"").append(playerId).append('"')
+                .append(",\"name\":");
+        appendString(out, playerName);
+        out.append(",\"trade\":");
+        appendString(out, tradeId);
+        out.append(",\"world\":");
+        appendString(out, world);
+        out.append(",\"x\":").append(x)
+                .append(",\"y\":").append(y)
+                .append(",\"z\":").append(z)
+                .append(",\"amount\":").append(resultAmount)
+                .append(",\"cost\":").append(costAmount)
+                .append("}\n");
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+}
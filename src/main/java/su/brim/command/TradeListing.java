@@ -0,0 +1,73 @@
+package su.brim.command;
+
+import su.brim.config.TradeCatalog;
+import su.brim.model.Trade;
+import su.brim.pricing.DynamicPricing;
+import su.brim.stock.GlobalStock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Paged output of /wanderingtrader list.
+ * The fixed part of every line is rendered once per catalog version; only the current price
+ * and stock are filled in, and only for the lines of the requested page.
+ */
+final class TradeListing {
+
+    static final int PAGE_SIZE = 10;
+
+    private volatile Rendered rendered = new Rendered(0, new String[0], new String[0]);
+
+    /**
+     * @param rows Catalog positions of the trades to list, ascending
+     * @param page Page to render, starting at 1
+     * @return Lines of the page, empty if it is out of range
+     */
+    List<String> page(TradeCatalog catalog, int[] rows, int page, DynamicPricing pricing, GlobalStock stock) {
+        Rendered text = render(catalog);
+        int from = (page - 1) * PAGE_SIZE;
+        int to = Math.min(rows.length, from + PAGE_SIZE);
+
+        List<String> lines = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            int row = rows[i];
+            Trade trade = catalog.getTrade(row);
+            long available = stock.getAvailable(trade);
+            lines.add(text.heads[row] + pricing.getCost(trade) + text.tails[row]
+                    + (available >= 0 ? " §7stock: §f" + available + "/" + trade.getStock().getLimit() : ""));
+        }
+        return lines;
+    }
+
+    static int pageCount(int rows) {
+        return Math.max(1, (rows + PAGE_SIZE - 1) / PAGE_SIZE);
+    }
+
+    private Rendered render(TradeCatalog catalog) {
+        Rendered current = rendered;
+        if (current.version == catalog.getVersion() && current.heads.length == catalog.size()) {
+            return current;
+        }
+
+        // Racing commands may both render; either result is complete and the same
+        String[] heads = new String[catalog.size()];
+        String[] tails = new String[catalog.size()];
+        for (int row = 0; row < heads.length; row++) {
+            Trade trade = catalog.getTrade(row);
+            heads[row] = "§7- §f" + trade.getId() + "§7: " + trade.getResultAmount() + "x "
+                    + formatMaterial(trade.getResultMaterial().name()) + " for ";
+            tails[row] = " diamonds (weight: " + trade.getWeight() + ")";
+        }
+        current = new Rendered(catalog.getVersion(), heads, tails);
+        rendered = current;
+        return current;
+    }
+
+    private static String formatMaterial(String material) {
+        return material.toLowerCase().replace("_", " ");
+    }
+
+    private record Rendered(int version, String[] heads, String[] tails) {
+    }
+}
@@ -1,13 +1,25 @@
 package su.brim.command;
 
 import su.brim.WanderingTraderPlugin;
+import su.brim.config.TradeCatalog;
+import su.brim.config.TradeSearchIndex;
+import su.brim.simulation.TradeSimulator;
+import su.brim.trace.TraceBuffer;
+import su.brim.util.PrefixIndex;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
+import org.bukkit.entity.Entity;
 
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Command handler for /wanderingtrader command.
@@ -15,7 +27,14 @@ import java.util.List;
  */
 public class WanderingTraderCommand implements CommandExecutor, TabCompleter {
 
+    private static final long DEFAULT_SIMULATION_ROLLS = 1_000_000;
+    private static final long MAX_SIMULATION_ROLLS = 100_000_000;
+    private static final int MAX_COMPLETIONS = 50;
+    private static final DateTimeFormatter DUMP_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
     private final WanderingTraderPlugin plugin;
+    private final AtomicBoolean simulationRunning = new AtomicBoolean();
+    private final TradeListing listing = new TradeListing();
 
     public WanderingTraderCommand(WanderingTraderPlugin plugin) {
         this.plugin = plugin;
@@ -35,48 +54,223 @@ public class WanderingTraderCommand implements CommandExecutor, TabCompleter {
 
         switch (args[0].toLowerCase()) {
             case "reload" -> {
-                plugin.reloadTradeConfig();
-                sender.sendMessage("§aWanderingTrader configuration reloaded!");
-                sender.sendMessage("§7Loaded " + plugin.getTradeConfig().getAllTrades().size() + " trades.");
-            }
-            case "list" -> {
-                sender.sendMessage("§6=== WanderingTrader Trades ===");
-                var trades = plugin.getTradeConfig().getAllTrades();
-                if (trades.isEmpty()) {
-                    sender.sendMessage("§cNo trades configured!");
-                } else {
-                    for (var trade : trades) {
-                        sender.sendMessage(String.format("§7- §f%s§7: %dx %s for %d diamonds (weight: %d)",
-                                trade.getId(),
-                                trade.getResultAmount(),
-                                formatMaterial(trade.getResultMaterial().name()),
-                                trade.getCostAmount(),
-                                trade.getWeight()));
+                sender.sendMessage("§7Reloading WanderingTrader configuration...");
+                plugin.reloadTradeConfig().whenComplete((catalog, error) -> runForSender(sender, () -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        sender.sendMessage("§cFailed to reload configuration: " + cause.getMessage());
+                        sender.sendMessage("§7Previous trades are still active.");
+                        return;
                     }
-                }
+                    sender.sendMessage("§aWanderingTrader configuration reloaded!");
+                    sender.sendMessage("§7Loaded " + catalog.size() + " trades.");
+                    List<String> restartPending = plugin.getTradeConfig().getRestartPending();
+                    if (!restartPending.isEmpty()) {
+                        sender.sendMessage("§eChanged settings only applied on restart: §f"
+                                + String.join(", ", restartPending));
+                    }
+                }));
             }
+            case "list" -> list(sender, args);
             case "info" -> {
+                var catalog = plugin.getTradeConfig().getCatalog();
                 sender.sendMessage("§6=== WanderingTrader Info ===");
-                sender.sendMessage("§7Min trades per trader: §f" + plugin.getTradeConfig().getMinTrades());
-                sender.sendMessage("§7Max trades per trader: §f" + plugin.getTradeConfig().getMaxTrades());
-                sender.sendMessage("§7Replace all vanilla trades: §f" + plugin.getTradeConfig().isReplaceAllTrades());
-                sender.sendMessage("§7Total configured trades: §f" + plugin.getTradeConfig().getAllTrades().size());
+                sender.sendMessage("§7Min trades per trader: §f" + catalog.getMinTrades());
+                sender.sendMessage("§7Max trades per trader: §f" + catalog.getMaxTrades());
+                sender.sendMessage("§7Replace all vanilla trades: §f" + catalog.isReplaceAllTrades());
+                sender.sendMessage("§7Deterministic trades: §f" + catalog.isDeterministicTrades());
+                sender.sendMessage("§7Lazy trades: §f" + catalog.isLazyTrades());
+                sender.sendMessage("§7Total configured trades: §f" + catalog.size());
+                sender.sendMessage("§7Trades registered by plugins: §f" + plugin.getTradeConfig().getRegisteredCount());
+                sender.sendMessage("§7Distinct trade pools: §f" + catalog.getPoolCount());
+                sender.sendMessage("§7Trades sold out server-wide: §f" + plugin.getGlobalStock().getSoldOutCount());
+                sender.sendMessage("§7Dynamic pricing: §f" + plugin.getPricing().isEnabled());
+            }
+            case "stats" -> {
+                if (args.length > 1 && args[1].equalsIgnoreCase("reset")) {
+                    plugin.getMetrics().reset();
+                    sender.sendMessage("§aWanderingTrader statistics reset.");
+                    return true;
+                }
+                sender.sendMessage("§6=== WanderingTrader Stats ===");
+                for (String line : plugin.getMetrics().report()) {
+                    sender.sendMessage("§7" + line);
+                }
+                sender.sendMessage("§7Re-roll queue: §f" + plugin.getRerollQueue().getPendingCount() + " pending");
+                sender.sendMessage("§7Restock: §f" + plugin.getRestock().getScheduledCount() + " traders scheduled");
+                var admission = plugin.getAdmission();
+                if (admission.isEnabled()) {
+                    sender.sendMessage("§7Spawn admission: §f" + admission.getQueuedCount() + " queued (peak "
+                            + admission.getPeakQueuedCount() + "), " + admission.getDeferredCount() + " deferred");
+                }
+                var purchaseLog = plugin.getPurchaseLog();
+                if (purchaseLog.isEnabled()) {
+                    sender.sendMessage("§7Audit log: §f" + purchaseLog.getWrittenCount() + " written, "
+                            + purchaseLog.getDroppedCount() + " dropped, "
+                            + purchaseLog.getQueuedCount() + " queued");
+                }
             }
+            case "simulate" -> simulate(sender, args);
+            case "trace" -> trace(sender, args);
             default -> sendHelp(sender);
         }
 
         return true;
     }
 
+    /**
+     * Lists one page of trades, optionally narrowed down by filters such as {@code cost:diamond}.
+     * Bare words match trade ids by prefix.
+     */
+    private void list(CommandSender sender, String[] args) {
+        TradeCatalog catalog = plugin.getTradeConfig().getCatalog();
+        sender.sendMessage("§6=== WanderingTrader Trades ===");
+        if (catalog.size() == 0) {
+            sender.sendMessage("§cNo trades configured!");
+            return;
+        }
+
+        TradeSearchIndex index = catalog.getSearchIndex();
+        int[] rows = index.all();
+        int page = 1;
+        StringBuilder filters = new StringBuilder();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (isPageNumber(arg)) {
+                page = Integer.parseInt(arg);
+                continue;
+            }
+            int colon = arg.indexOf(':');
+            TradeSearchIndex.Field field = colon < 0
+                    ? TradeSearchIndex.Field.ID : TradeSearchIndex.Field.byPrefix(arg.substring(0, colon));
+            if (field == null) {
+                sender.sendMessage("§cUnknown filter: " + arg + ". Use id:, result:, cost: or ench:");
+                return;
+            }
+            rows = PrefixIndex.intersect(rows, index.find(field, arg.substring(colon + 1)));
+            filters.append(' ').append(arg);
+        }
+        if (rows.length == 0) {
+            sender.sendMessage("§cNo trades match" + filters + ".");
+            return;
+        }
+
+        int pages = TradeListing.pageCount(rows.length);
+        page = Math.min(Math.max(1, page), pages);
+        for (String line : listing.page(catalog, rows, page, plugin.getPricing(), plugin.getGlobalStock())) {
+            sender.sendMessage(line);
+        }
+        sender.sendMessage("§7Page " + page + "/" + pages + " (" + rows.length + " trades)"
+                + (page < pages ? ", next: §e/wanderingtrader list " + (page + 1) + filters : ""));
+    }
+
+    private static boolean isPageNumber(String arg) {
+        if (arg.isEmpty() || arg.length() > 6) {
+            return false;
+        }
+        for (int i = 0; i < arg.length(); i++) {
+            if (!Character.isDigit(arg.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs a Monte Carlo simulation of trader rolls off the server threads and reports back asynchronously.
+     */
+    private void simulate(CommandSender sender, String[] args) {
+        long rolls = DEFAULT_SIMULATION_ROLLS;
+        long seed = System.nanoTime();
+        try {
+            if (args.length > 1) {
+                rolls = Long.parseLong(args[1].replace("_", ""));
+            }
+            if (args.length > 2) {
+                seed = Long.parseLong(args[2]);
+            }
+        } catch (NumberFormatException e) {
+            sender.sendMessage("§cUsage: /wanderingtrader simulate [count] [seed]");
+            return;
+        }
+        if (rolls < 1 || rolls > MAX_SIMULATION_ROLLS) {
+            sender.sendMessage("§cCount must be between 1 and " + MAX_SIMULATION_ROLLS + ".");
+            return;
+        }
+        if (!simulationRunning.compareAndSet(false, true)) {
+            sender.sendMessage("§cA simulation is already running.");
+            return;
+        }
+
+        sender.sendMessage(String.format("§7Simulating %,d traders (seed %d)...", rolls, seed));
+        TradeSimulator.simulateAsync(plugin.getTradeConfig().getCatalog(), rolls, seed)
+                .whenComplete((result, error) -> {
+                    simulationRunning.set(false);
+                    runForSender(sender, () -> {
+                        if (error != null) {
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                    ? error.getCause() : error;
+                            sender.sendMessage("§cSimulation failed: " + cause.getMessage());
+                            return;
+                        }
+                        sender.sendMessage("§6=== WanderingTrader Simulation ===");
+                        for (String line : result.report()) {
+                            sender.sendMessage("§7" + line);
+                        }
+                    });
+                });
+    }
+
+    /**
+     * Shows the trace buffer status, or writes its events to a file in the data folder off the server threads.
+     */
+    private void trace(CommandSender sender, String[] args) {
+        TraceBuffer trace = plugin.getTrace();
+        if (!trace.isEnabled()) {
+            sender.sendMessage("§cTracing is disabled. Set trace.enabled in config.yml and restart.");
+            return;
+        }
+        if (args.length < 2 || !args[1].equalsIgnoreCase("dump")) {
+            sender.sendMessage("§6=== WanderingTrader Trace ===");
+            sender.sendMessage("§7Sample rate: §f" + trace.getSampleRate());
+            sender.sendMessage("§7Events: §f" + trace.getRecordedCount() + " recorded, last "
+                    + Math.min(trace.getRecordedCount(), trace.getCapacity()) + " kept");
+            return;
+        }
+
+        File file = new File(plugin.getDataFolder(), "trace-" + LocalDateTime.now().format(DUMP_NAME) + ".log");
+        sender.sendMessage("§7Dumping trace...");
+        plugin.getServer().getAsyncScheduler().runNow(plugin, task -> {
+            try {
+                int written = trace.dump(file.toPath());
+                runForSender(sender, () -> sender.sendMessage("§aWrote " + written + " events to " + file.getName()));
+            } catch (Exception e) {
+                runForSender(sender, () -> sender.sendMessage("§cTrace dump failed: " + e.getMessage()));
+            }
+        });
+    }
+
     private void sendHelp(CommandSender sender) {
         sender.sendMessage("§6=== WanderingTrader Commands ===");
         sender.sendMessage("§e/wanderingtrader reload §7- Reload configuration");
-        sender.sendMessage("§e/wanderingtrader list §7- List all configured trades");
+        sender.sendMessage("§e/wanderingtrader list [page] [filters] §7- List configured trades, e.g. cost:diamond ench:mending");
         sender.sendMessage("§e/wanderingtrader info §7- Show plugin info");
+        sender.sendMessage("§e/wanderingtrader stats [reset] §7- Show runtime statistics");
+        sender.sendMessage("§e/wanderingtrader simulate [count] [seed] §7- Simulate trader rolls");
+        sender.sendMessage("§e/wanderingtrader trace [dump] §7- Show or dump the event trace");
     }
 
-    private String formatMaterial(String material) {
-        return material.toLowerCase().replace("_", " ");
+    /**
+     * Runs a reply on a thread that may talk to the sender.
+     * Async results are routed back to the player's region, or to the global region for the console.
+     */
+    private void runForSender(CommandSender sender, Runnable reply) {
+        if (sender instanceof Entity entity) {
+            entity.getScheduler().run(plugin, task -> reply.run(), null);
+        } else {
+            plugin.getServer().getGlobalRegionScheduler().execute(plugin, reply);
+        }
     }
 
     @Override
@@ -86,11 +280,51 @@ public class WanderingTraderCommand implements CommandExecutor, TabCompleter {
         }
 
         if (args.length == 1) {
-            return List.of("reload", "list", "info").stream()
+            return List.of("reload", "list", "info", "stats", "simulate", "trace").stream()
                     .filter(s -> s.startsWith(args[0].toLowerCase()))
                     .toList();
         }
 
+        if (args.length >= 2 && args[0].equalsIgnoreCase("list")) {
+            return completeFilter(args[args.length - 1]);
+        }
+
+        if (args.length == 2 && args[0].equalsIgnoreCase("stats")) {
+            return "reset".startsWith(args[1].toLowerCase()) ? List.of("reset") : Collections.emptyList();
+        }
+
+        if (args.length == 2 && args[0].equalsIgnoreCase("trace")) {
+            return "dump".startsWith(args[1].toLowerCase()) ? List.of("dump") : Collections.emptyList();
+        }
+
         return Collections.emptyList();
     }
+
+    /**
+     * Suggests list filters: field names, then known values of the field, or trade ids for bare words.
+     */
+    private List<String> completeFilter(String token) {
+        TradeSearchIndex index = plugin.getTradeConfig().getCatalog().getSearchIndex();
+        int colon = token.indexOf(':');
+        if (colon >= 0) {
+            TradeSearchIndex.Field field = TradeSearchIndex.Field.byPrefix(token.substring(0, colon));
+            if (field == null) {
+                return Collections.emptyList();
+            }
+            String name = token.substring(0, colon + 1);
+            return index.complete(field, token.substring(colon + 1), MAX_COMPLETIONS).stream()
+                    .map(value -> name + value)
+                    .toList();
+        }
+
+        List<String> suggestions = new ArrayList<>();
+        for (TradeSearchIndex.Field field : TradeSearchIndex.Field.values()) {
+            String name = field.getPrefix() + ":";
+            if (name.startsWith(token.toLowerCase())) {
+                suggestions.add(name);
+            }
+        }
+        suggestions.addAll(index.complete(TradeSearchIndex.Field.ID, token, MAX_COMPLETIONS));
+        return suggestions;
+    }
 }
@@ -0,0 +1,263 @@
+package su.brim.config;
+
+import su.brim.model.Trade;
+import su.brim.model.TradeContext;
+import su.brim.model.TradePricing;
+import su.brim.model.TradeStock;
+import su.brim.model.TradeTable;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Registry;
+import org.bukkit.World;
+import org.bukkit.enchantments.Enchantment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Binary compiled form of the trade catalog, stored next to config.yml.
+ * Keyed by a hash of the raw config bytes plus the plugin and server versions, so it is only
+ * reused when the YAML, the defaults and the material ordinals are all unchanged.
+ * Reading skips YAML parsing and material name matching; item prototypes are still built from the result.
+ */
+public class CatalogCache {
+
+    private static final int MAGIC = 0x57544343; // "WTCC"
+    private static final int FORMAT_VERSION = 6;
+
+    private final Path file;
+    private final String environment;
+    private final Logger logger;
+
+    /**
+     * @param file Location of the cache file
+     * @param environment Plugin and server version string; a change invalidates the cache
+     */
+    public CatalogCache(Path file, String environment, Logger logger) {
+        this.file = file;
+        this.environment = environment;
+        this.logger = logger;
+    }
+
+    /**
+     * Reads the cached catalog if it was compiled from a config with the given hash.
+     * Lengths and ordinals are checked against the file before use, so a truncated or corrupt
+     * file is treated as a miss rather than allocating whatever it claims.
+     * @return The catalog, or null if the cache is missing, stale or unreadable
+     */
+    public TradeCatalog read(byte[] configHash) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try {
+            // Read onto the heap rather than mapped: a live mapping keeps Windows from replacing the file on write
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            if (!environment.equals(readString(buffer)) || !Arrays.equals(configHash, readBytes(buffer))) {
+                return null;
+            }
+            return readCatalog(buffer);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Ignoring unreadable catalog cache " + file.getFileName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the catalog compiled from a config with the given hash.
+     * Written to a temporary file of its own first and moved into place, so readers never see a partial file
+     * and overlapping writes never mix.
+     */
+    public void write(byte[] configHash, TradeCatalog catalog) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + catalog.size() * 64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, environment);
+            out.writeInt(configHash.length);
+            out.write(configHash);
+            writeCatalog(out, catalog);
+            out.flush();
+
+            Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), "catalog", ".tmp");
+            try {
+                Files.write(temp, bytes.toByteArray());
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to write catalog cache " + file.getFileName(), e);
+        }
+    }
+
+    private void writeCatalog(DataOutputStream out, TradeCatalog catalog) throws IOException {
+        out.writeInt(catalog.getMinTrades());
+        out.writeInt(catalog.getMaxTrades());
+        out.writeBoolean(catalog.isReplaceAllTrades());
+        out.writeBoolean(catalog.isDeterministicTrades());
+        out.writeLong(catalog.getSeedSalt());
+        out.writeBoolean(catalog.isLazyTrades());
+
+        out.writeInt(catalog.size());
+        for (Trade trade : catalog.getTrades()) {
+            writeString(out, trade.getId());
+            out.writeInt(trade.getResultMaterial().ordinal());
+            out.writeInt(trade.getResultAmount());
+            out.writeInt(trade.getCostMaterial().ordinal());
+            out.writeInt(trade.getCostAmount());
+            out.writeInt(trade.getSecondCostMaterial() != null ? trade.getSecondCostMaterial().ordinal() : -1);
+            out.writeInt(trade.getSecondCostAmount());
+            out.writeInt(trade.getMaxUses());
+            out.writeInt(trade.getWeight());
+
+            out.writeInt(trade.getEnchantmentCount());
+            for (int e = 0; e < trade.getEnchantmentCount(); e++) {
+                writeString(out, trade.getEnchantment(e).getKey().asString());
+                out.writeInt(trade.getEnchantmentLevel(e));
+            }
+
+            out.writeInt(trade.getStock().getLimit());
+            out.writeInt(trade.getStock().getRestockMinutes());
+            TradePricing pricing = trade.getPricing();
+            out.writeInt(pricing.getFloor());
+            out.writeInt(pricing.getCeiling());
+            out.writeDouble(pricing.getStep());
+            out.writeDouble(pricing.getDecay());
+            out.writeInt(trade.getRestockMinutes());
+
+            TradeContext context = trade.getContext();
+            out.writeInt(context.getWorlds().size());
+            for (String world : context.getWorlds()) {
+                writeString(out, world);
+            }
+            out.writeInt(context.getEnvironments().size());
+            for (World.Environment environment : context.getEnvironments()) {
+                out.writeInt(environment.ordinal());
+            }
+            out.writeInt(context.getBiomes().size());
+            for (NamespacedKey biome : context.getBiomes()) {
+                writeString(out, biome.asString());
+            }
+        }
+    }
+
+    private TradeCatalog readCatalog(ByteBuffer buffer) {
+        int minTrades = buffer.getInt();
+        int maxTrades = buffer.getInt();
+        boolean replaceAllTrades = buffer.get() != 0;
+        boolean deterministicTrades = buffer.get() != 0;
+        long seedSalt = buffer.getLong();
+        boolean lazyTrades = buffer.get() != 0;
+
+        Material[] materials = Material.values();
+        int count = buffer.getInt();
+        TradeTable.Builder trades = TradeTable.builder();
+        for (int i = 0; i < count; i++) {
+            String id = readString(buffer);
+            Material resultMaterial = materials[readIndex(buffer, materials.length)];
+            int resultAmount = buffer.getInt();
+            Material costMaterial = materials[readIndex(buffer, materials.length)];
+            int costAmount = buffer.getInt();
+            int secondOrdinal = buffer.getInt();
+            Material secondCostMaterial = secondOrdinal >= 0
+                    ? materials[checkIndex(secondOrdinal, materials.length)]
+                    : null;
+            int secondCostAmount = buffer.getInt();
+            int maxUses = buffer.getInt();
+            int weight = buffer.getInt();
+
+            int enchantCount = buffer.getInt();
+            Map<Enchantment, Integer> enchantments = new HashMap<>();
+            for (int e = 0; e < enchantCount; e++) {
+                String key = readString(buffer);
+                int level = buffer.getInt();
+                Enchantment enchantment = Registry.ENCHANTMENT.get(NamespacedKey.fromString(key));
+                if (enchantment == null) {
+                    // Registry content changed without a version bump, fall back to a full parse
+                    throw new IllegalStateException("Unknown enchantment in cache: " + key);
+                }
+                enchantments.put(enchantment, level);
+            }
+
+            int stockLimit = buffer.getInt();
+            int stockRestockMinutes = buffer.getInt();
+            TradeStock stock = TradeStock.of(stockLimit, stockRestockMinutes);
+            int priceFloor = buffer.getInt();
+            int priceCeiling = buffer.getInt();
+            double priceStep = buffer.getDouble();
+            double priceDecay = buffer.getDouble();
+            int restockMinutes = buffer.getInt();
+            TradePricing pricing = priceFloor > 0
+                    ? TradePricing.of(priceFloor, priceCeiling, priceStep, priceDecay)
+                    : TradePricing.STATIC;
+
+            Set<String> worlds = new HashSet<>();
+            for (int w = buffer.getInt(); w > 0; w--) {
+                worlds.add(readString(buffer));
+            }
+            Set<World.Environment> environments = EnumSet.noneOf(World.Environment.class);
+            for (int e = buffer.getInt(); e > 0; e--) {
+                World.Environment[] values = World.Environment.values();
+                environments.add(values[readIndex(buffer, values.length)]);
+            }
+            Set<NamespacedKey> biomes = new HashSet<>();
+            for (int b = buffer.getInt(); b > 0; b--) {
+                biomes.add(NamespacedKey.fromString(readString(buffer)));
+            }
+
+            trades.add(id, resultMaterial, resultAmount,
+                    costMaterial, costAmount,
+                    secondCostMaterial, secondCostAmount,
+                    maxUses, weight, true, enchantments,
+                    TradeContext.of(worlds, environments, biomes), stock, pricing, restockMinutes);
+        }
+
+        return new TradeCatalog(trades.build(), minTrades, maxTrades, replaceAllTrades, deterministicTrades, seedSalt, lazyTrades);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        return new String(readBytes(buffer), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[checkIndex(buffer.getInt(), buffer.remaining() + 1)];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static int readIndex(ByteBuffer buffer, int bound) {
+        return checkIndex(buffer.getInt(), bound);
+    }
+
+    private static int checkIndex(int value, int bound) {
+        if (value < 0 || value >= bound) {
+            throw new IllegalStateException("Corrupt catalog cache: " + value + " out of range 0.." + (bound - 1));
+        }
+        return value;
+    }
+}
@@ -0,0 +1,102 @@
+package su.brim.config;
+
+import su.brim.WanderingTraderPlugin;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Watches the plugin data folder and reloads trades when config.yml changes.
+ * Editors often save in several steps, so a reload only starts once the file has been
+ * quiet for the debounce delay. The watch runs on its own daemon thread, since waiting
+ * for file events blocks, and the reload itself runs like /wanderingtrader reload.
+ */
+public class ConfigWatcher {
+
+    private static final String CONFIG_FILE = "config.yml";
+
+    private final WanderingTraderPlugin plugin;
+    private final boolean enabled;
+    private final long debounceMillis;
+    private WatchService watchService;
+
+    public ConfigWatcher(WanderingTraderPlugin plugin) {
+        this.plugin = plugin;
+        this.enabled = plugin.getConfig().getBoolean("hot-reload.enabled", false);
+        this.debounceMillis = Math.max(50, plugin.getConfig().getLong("hot-reload.debounce-ms", 500L));
+    }
+
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Path folder = plugin.getDataFolder().toPath();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to watch " + folder + ", hot reload disabled", e);
+            return;
+        }
+
+        Thread thread = new Thread(this::watch, "WanderingTrader-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the watch thread.
+     */
+    public void stop() {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.FINE, "Failed to close config watcher", e);
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                if (!touchesConfig(watchService.take())) {
+                    continue;
+                }
+                // Debounce: wait until config.yml has been quiet for the whole delay
+                WatchKey key;
+                while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    touchesConfig(key);
+                }
+                plugin.getLogger().info("config.yml changed, reloading trades...");
+                plugin.reloadTradeConfig();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Plugin disabled
+        }
+    }
+
+    /**
+     * Consumes the events of a key.
+     * @return true if any of them touched config.yml
+     */
+    private boolean touchesConfig(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.context() instanceof Path path && path.getFileName().toString().equals(CONFIG_FILE)) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+}
@@ -0,0 +1,244 @@
+package su.brim.config;
+
+import su.brim.model.Trade;
+import su.brim.model.TradeTable;
+import su.brim.util.WeightedSampler;
+import org.bukkit.Location;
+import org.bukkit.inventory.MerchantRecipe;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.random.RandomGenerator;
+
+/**
+ * Immutable snapshot of the loaded trades and selection settings.
+ * A new catalog is built for every (re)load and published in one volatile write,
+ * so readers on any region thread always see a complete, consistent configuration.
+ */
+public final class TradeCatalog {
+
+    private static final TradeCatalog EMPTY = new TradeCatalog(TradeTable.builder().build(), 5, 8, true, false, 0L, false);
+
+    private final TradeTable table;
+    private final List<Trade> trades;
+    private final WeightedSampler<Trade> sampler;
+    private final TradeContextIndex contexts;
+    private final TradeSearchIndex searchIndex;
+    private final int minTrades;
+    private final int maxTrades;
+    private final boolean replaceAllTrades;
+    private final boolean deterministicTrades;
+    private final long seedSalt;
+    private final boolean lazyTrades;
+    private final int version;
+    private final Map<Integer, Trade> byContentHash;
+
+    /**
+     * Builds a catalog from trades that may come from other tables; they are packed into one new table.
+     */
+    public TradeCatalog(List<Trade> trades, int minTrades, int maxTrades,
+                        boolean replaceAllTrades, boolean deterministicTrades, long seedSalt,
+                        boolean lazyTrades) {
+        this(TradeTable.copyOf(trades), minTrades, maxTrades,
+                replaceAllTrades, deterministicTrades, seedSalt, lazyTrades);
+    }
+
+    public TradeCatalog(TradeTable table, int minTrades, int maxTrades,
+                        boolean replaceAllTrades, boolean deterministicTrades, long seedSalt,
+                        boolean lazyTrades) {
+        this.table = table;
+        this.trades = table.asList();
+        this.sampler = WeightedSampler.of(this.trades, Trade::getWeight);
+        this.contexts = TradeContextIndex.build(this.trades, sampler);
+        this.searchIndex = TradeSearchIndex.build(this.trades);
+        this.minTrades = minTrades;
+        this.maxTrades = maxTrades;
+        this.replaceAllTrades = replaceAllTrades;
+        this.deterministicTrades = deterministicTrades;
+        this.seedSalt = seedSalt;
+        this.lazyTrades = lazyTrades;
+        this.version = computeVersion();
+        this.byContentHash = new HashMap<>(trades.size() * 2);
+        for (Trade trade : trades) {
+            byContentHash.putIfAbsent(trade.contentHash(), trade);
+        }
+    }
+
+    // Stable fingerprint of everything that decides which offers a trader gets
+    private int computeVersion() {
+        int hash = 1;
+        for (Trade trade : trades) {
+            hash = 31 * hash + trade.contentHash();
+        }
+        hash = 31 * hash + minTrades;
+        hash = 31 * hash + maxTrades;
+        hash = 31 * hash + Boolean.hashCode(replaceAllTrades);
+        hash = 31 * hash + Boolean.hashCode(deterministicTrades);
+        hash = 31 * hash + Long.hashCode(seedSalt);
+        return hash;
+    }
+
+    public static TradeCatalog empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Selects trades for a specific trader from the pool configured for its location.
+     * In deterministic mode the result depends only on the trader, world seed and seed salt.
+     * Must run on the thread owning the location.
+     * @param traderId UUID of the trader
+     * @param location Where the trader is
+     * @return List of selected trades
+     */
+    public List<Trade> selectTradesFor(UUID traderId, Location location) {
+        return selectTradesFor(traderId, location, null);
+    }
+
+    /**
+     * Selects trades for a trader like {@link #selectTradesFor(UUID, Location)}, leaving out unavailable ones.
+     * @param unavailable Trades to leave out, e.g. sold out ones, or null to offer all
+     */
+    public List<Trade> selectTradesFor(UUID traderId, Location location, Predicate<? super Trade> unavailable) {
+        WeightedSampler<Trade> pool = contexts.samplerFor(location);
+        if (!deterministicTrades) {
+            return select(pool, ThreadLocalRandom.current(), unavailable);
+        }
+        return select(pool, new SplittableRandom(traderSeed(traderId, location.getWorld().getSeed())), unavailable);
+    }
+
+    /**
+     * Selects random trades from the whole catalog, ignoring world and biome filters.
+     * Uses weighted random selection without duplicates.
+     * @param random Generator owned by the caller, never shared between threads
+     * @return List of randomly selected trades
+     */
+    public List<Trade> selectRandomTrades(RandomGenerator random) {
+        return selectRandomTrades(random, null);
+    }
+
+    /**
+     * Selects random trades from the whole catalog, leaving out unavailable ones.
+     * @param unavailable Trades to leave out, e.g. sold out ones, or null to offer all
+     */
+    public List<Trade> selectRandomTrades(RandomGenerator random, Predicate<? super Trade> unavailable) {
+        return select(sampler, random, unavailable);
+    }
+
+    private List<Trade> select(WeightedSampler<Trade> pool, RandomGenerator random, Predicate<? super Trade> unavailable) {
+        if (pool.isEmpty()) {
+            return List.of();
+        }
+
+        int numTrades = minTrades + random.nextInt(Math.max(1, maxTrades - minTrades + 1));
+        return pool.sample(random, numTrades, unavailable);
+    }
+
+    private long traderSeed(UUID traderId, long worldSeed) {
+        long seed = mix(worldSeed ^ seedSalt);
+        seed = mix(seed ^ traderId.getMostSignificantBits());
+        return mix(seed ^ traderId.getLeastSignificantBits());
+    }
+
+    // Stafford variant 13 finalizer, spreads nearby inputs across the whole seed space
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return Views over the packed trade table. Shared, never copied.
+     */
+    public List<Trade> getTrades() {
+        return trades;
+    }
+
+    public TradeTable getTable() {
+        return table;
+    }
+
+    /**
+     * @return Index for searching trades by id, materials and enchantments
+     */
+    public TradeSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * Content fingerprint of this catalog, stable across restarts.
+     * Stored on traders to detect offers rolled from an older configuration.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Position of the trade in this catalog, or -1 if it belongs to another catalog
+     */
+    public int indexOf(Trade trade) {
+        return table.indexOf(trade);
+    }
+
+    /**
+     * @return The trade a recipe offered by a trader was built from, or null for vanilla recipes
+     */
+    public Trade findTrade(MerchantRecipe recipe) {
+        return table.findByRecipe(recipe);
+    }
+
+    /**
+     * Finds a trade by {@link Trade#contentHash()}, which stays the same across catalog versions
+     * as long as the trade itself is unchanged.
+     * @return The trade, or null if no trade in this catalog has that content
+     */
+    public Trade findByContentHash(int contentHash) {
+        return byContentHash.get(contentHash);
+    }
+
+    /**
+     * @return Trade at the given position, or null if out of range
+     */
+    public Trade getTrade(int index) {
+        return index >= 0 && index < trades.size() ? trades.get(index) : null;
+    }
+
+    public int size() {
+        return trades.size();
+    }
+
+    /**
+     * @return Number of distinct trade pools across all world/dimension/biome contexts
+     */
+    public int getPoolCount() {
+        return contexts.distinctPoolCount();
+    }
+
+    public int getMinTrades() {
+        return minTrades;
+    }
+
+    public int getMaxTrades() {
+        return maxTrades;
+    }
+
+    public boolean isReplaceAllTrades() {
+        return replaceAllTrades;
+    }
+
+    public boolean isDeterministicTrades() {
+        return deterministicTrades;
+    }
+
+    public long getSeedSalt() {
+        return seedSalt;
+    }
+
+    public boolean isLazyTrades() {
+        return lazyTrades;
+    }
+}
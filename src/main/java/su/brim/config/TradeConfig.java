@@ -2,198 +2,353 @@ package su.brim.config;
 
 import su.brim.WanderingTraderPlugin;
 import su.brim.model.Trade;
-import org.bukkit.Material;
-import org.bukkit.NamespacedKey;
-import org.bukkit.Registry;
+import su.brim.trace.TraceEvent;
+import org.bukkit.Location;
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.enchantments.Enchantment;
+import org.bukkit.configuration.file.YamlConfiguration;
 
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.logging.Level;
+import java.util.random.RandomGenerator;
 
 /**
  * Handles loading and managing custom trades from config.yml
- * Uses thread-safe collections for Folia compatibility.
+ * The active trades live in an immutable {@link TradeCatalog} that is swapped atomically,
+ * so Folia's parallel regions never see a partially loaded configuration.
+ * The published catalog holds the trades of config.yml followed by those registered by
+ * other plugins through {@link TradeRegistry}.
  */
 public class TradeConfig {
 
+    // Sections read once by the components they configure, so a reload can't apply them
+    private static final List<String> RESTART_SECTIONS =
+            List.of("reroll", "admission", "metrics", "pricing", "audit", "hot-reload", "trace");
+
     private final WanderingTraderPlugin plugin;
-    private final CopyOnWriteArrayList<Trade> trades;
-    private final Random random;
-    
-    private int minTrades;
-    private int maxTrades;
-    private boolean replaceAllTrades;
+    private final TradeLoader loader;
+    private final CatalogCache cache;
+    private volatile TradeCatalog catalog;
+    // Restart-only settings the running components were built with, by section
+    private final Map<String, Map<String, Object>> activeSettings;
+    private volatile List<String> restartPending = List.of();
+    // Order in which reloads started reading config.yml
+    private final AtomicLong reloadSequence = new AtomicLong();
+
+    // Guarded by this: catalog of config.yml alone, and registered trades by owning plugin.
+    // Sorted, so the same registrations always give the same catalog version across restarts.
+    private TradeCatalog configCatalog;
+    private SortedMap<String, SortedMap<String, Trade>> registered = new TreeMap<>();
+    private long publishedSequence;
 
     public TradeConfig(WanderingTraderPlugin plugin) {
         this.plugin = plugin;
-        this.trades = new CopyOnWriteArrayList<>();
-        this.random = new Random();
+        this.loader = new TradeLoader(plugin.getLogger());
+        this.cache = new CatalogCache(new File(plugin.getDataFolder(), "catalog.bin").toPath(),
+                plugin.getDescription().getVersion() + "/" + plugin.getServer().getBukkitVersion(),
+                plugin.getLogger());
+        this.catalog = TradeCatalog.empty();
+        this.configCatalog = catalog;
+        this.activeSettings = settingsOf(plugin.getConfig());
     }
 
     /**
-     * Loads all trades from the config file.
-     * Thread-safe for Folia's parallel region execution.
+     * Loads all trades on the calling thread, from the compiled cache when config.yml is unchanged.
+     * Used on enable, where trades must be available before listeners are registered.
      */
     public void loadTrades() {
-        trades.clear();
-        
-        // Load general settings
-        minTrades = plugin.getConfig().getInt("settings.min-trades", 5);
-        maxTrades = plugin.getConfig().getInt("settings.max-trades", 8);
-        replaceAllTrades = plugin.getConfig().getBoolean("settings.replace-all-trades", true);
-        
-        ConfigurationSection tradesSection = plugin.getConfig().getConfigurationSection("trades");
-        if (tradesSection == null) {
-            plugin.getLogger().warning("No trades section found in config.yml!");
-            return;
+        long start = System.nanoTime();
+        TradeCatalog loaded;
+        try {
+            loaded = readCatalog(readConfigFile(), null);
+        } catch (Exception e) {
+            // Only reached on enable, where the server's copy was loaded from the same file moments ago
+            plugin.getLogger().log(Level.WARNING, "Failed to load config.yml, using the server's copy", e);
+            loaded = loader.load(plugin.getConfig());
         }
+        loaded = publish(loaded);
+        plugin.getTrace().global(TraceEvent.RELOAD, loaded.size(), System.nanoTime() - start);
+    }
 
-        for (String tradeId : tradesSection.getKeys(false)) {
-            ConfigurationSection tradeSection = tradesSection.getConfigurationSection(tradeId);
-            if (tradeSection == null) continue;
-
+    /**
+     * Re-reads config.yml on an async scheduler thread.
+     * The new catalog is only published once fully built; on failure the old one stays active.
+     * The plugin's config is refreshed too, but sections listed by {@link #getRestartPending()}
+     * keep running with the values they were started with.
+     * Overlapping reloads are published in the order they read the file; one overtaken by a later
+     * reload is discarded.
+     * @return Future completed with the published catalog
+     */
+    public CompletableFuture<TradeCatalog> reloadTradesAsync() {
+        CompletableFuture<TradeCatalog> future = new CompletableFuture<>();
+        plugin.getServer().getAsyncScheduler().runNow(plugin, task -> {
+            long start = System.nanoTime();
+            long sequence = reloadSequence.incrementAndGet();
             try {
-                Trade trade = loadTrade(tradeId, tradeSection);
-                if (trade != null && trade.isEnabled()) {
-                    trades.add(trade);
-                    plugin.getLogger().fine("Loaded trade: " + trade);
-                }
+                byte[] raw = readConfigFile();
+                YamlConfiguration config = parseConfig(new String(raw, StandardCharsets.UTF_8));
+                TradeCatalog loaded = publishReload(sequence, readCatalog(raw, config), config);
+                plugin.getTrace().global(TraceEvent.RELOAD, loaded.size(), System.nanoTime() - start);
+                future.complete(loaded);
             } catch (Exception e) {
-                plugin.getLogger().log(Level.WARNING, "Failed to load trade '" + tradeId + "': " + e.getMessage());
+                plugin.getTrace().global(TraceEvent.RELOAD, 0, System.nanoTime() - start);
+                future.completeExceptionally(e);
             }
-        }
+        });
+        return future;
     }
 
-    private Trade loadTrade(String id, ConfigurationSection section) {
-        boolean enabled = section.getBoolean("enabled", true);
-        
-        // Parse result
-        String resultMaterialStr = section.getString("result.material");
-        if (resultMaterialStr == null) {
-            plugin.getLogger().warning("Trade '" + id + "' missing result material!");
-            return null;
+    /**
+     * Applies changes to the trades registered by one plugin and publishes the resulting catalog.
+     * Runs under the catalog lock, so concurrent commits and reloads are applied one after the other.
+     * @param owner Name of the registering plugin
+     * @param changes Edits the plugin's trades by id, in place
+     * @return The published catalog, the current one if nothing changed
+     */
+    synchronized TradeCatalog commitRegistered(String owner, Consumer<? super SortedMap<String, Trade>> changes) {
+        SortedMap<String, Trade> trades = getRegistered(owner);
+        changes.accept(trades);
+        if (sameTrades(trades, registered.getOrDefault(owner, Collections.emptySortedMap()))) {
+            return catalog;
         }
-        
-        Material resultMaterial = Material.matchMaterial(resultMaterialStr);
-        if (resultMaterial == null) {
-            plugin.getLogger().warning("Trade '" + id + "' has invalid result material: " + resultMaterialStr);
-            return null;
+        if (trades.isEmpty()) {
+            registered.remove(owner);
+        } else {
+            registered.put(owner, trades);
         }
-        
-        int resultAmount = section.getInt("result.amount", 1);
-        
-        // Parse primary cost
-        String costMaterialStr = section.getString("cost.material", "DIAMOND");
-        Material costMaterial = Material.matchMaterial(costMaterialStr);
-        if (costMaterial == null) {
-            plugin.getLogger().warning("Trade '" + id + "' has invalid cost material: " + costMaterialStr);
-            return null;
+        return publish(configCatalog);
+    }
+
+    // Registering the same trades again builds new views, so compare them by value
+    private static boolean sameTrades(SortedMap<String, Trade> trades, SortedMap<String, Trade> current) {
+        if (trades.size() != current.size()) {
+            return false;
         }
-        
-        int costAmount = section.getInt("cost.amount", 1);
-        
-        // Parse secondary cost (optional)
-        Material secondCostMaterial = null;
-        int secondCostAmount = 0;
-        
-        if (section.contains("second-cost")) {
-            String secondCostMaterialStr = section.getString("second-cost.material");
-            if (secondCostMaterialStr != null) {
-                secondCostMaterial = Material.matchMaterial(secondCostMaterialStr);
-                if (secondCostMaterial != null) {
-                    secondCostAmount = section.getInt("second-cost.amount", 1);
-                }
+        for (Map.Entry<String, Trade> entry : trades.entrySet()) {
+            Trade other = current.get(entry.getKey());
+            if (other == null || !entry.getValue().sameAs(other)) {
+                return false;
             }
         }
-        
-        // Parse enchantments (for enchanted books)
-        Map<Enchantment, Integer> enchantments = new HashMap<>();
-        ConfigurationSection enchantSection = section.getConfigurationSection("enchantments");
-        if (enchantSection != null) {
-            for (String enchantKey : enchantSection.getKeys(false)) {
-                Enchantment enchantment = Registry.ENCHANTMENT.get(NamespacedKey.minecraft(enchantKey.toLowerCase()));
-                if (enchantment != null) {
-                    int level = enchantSection.getInt(enchantKey, 1);
-                    enchantments.put(enchantment, level);
-                } else {
-                    plugin.getLogger().warning("Trade '" + id + "' has invalid enchantment: " + enchantKey);
-                }
-            }
+        return true;
+    }
+
+    /**
+     * @return Copy of the trades currently registered by one plugin, by id
+     */
+    synchronized SortedMap<String, Trade> getRegistered(String owner) {
+        SortedMap<String, Trade> trades = registered.get(owner);
+        return trades != null ? new TreeMap<>(trades) : new TreeMap<>();
+    }
+
+    /**
+     * @return Number of trades registered by other plugins, including ones shadowed by config.yml
+     */
+    public synchronized int getRegisteredCount() {
+        int count = 0;
+        for (SortedMap<String, Trade> trades : registered.values()) {
+            count += trades.size();
         }
-        
-        int maxUses = section.getInt("max-uses", 3);
-        int weight = section.getInt("weight", 10);
-        
-        return new Trade(id, resultMaterial, resultAmount,
-                costMaterial, costAmount,
-                secondCostMaterial, secondCostAmount,
-                maxUses, weight, enabled, enchantments);
+        return count;
     }
 
     /**
-     * Selects random trades based on configured min/max values.
-     * Uses weighted random selection.
-     * @return List of randomly selected trades
+     * Publishes a reloaded catalog and refreshes the plugin's config, unless a reload that read
+     * config.yml later has already published.
+     * @return The published catalog, or the current one if this reload was overtaken
      */
-    public List<Trade> selectRandomTrades() {
-        if (trades.isEmpty()) {
-            return Collections.emptyList();
+    private synchronized TradeCatalog publishReload(long sequence, TradeCatalog fromConfig, YamlConfiguration config) {
+        if (sequence < publishedSequence) {
+            return catalog;
         }
+        publishedSequence = sequence;
+        restartPending = changedSettings(config);
+        plugin.reloadConfig();
+        return publish(fromConfig);
+    }
 
-        int numTrades = minTrades + random.nextInt(Math.max(1, maxTrades - minTrades + 1));
-        numTrades = Math.min(numTrades, trades.size());
+    /**
+     * Publishes a catalog of config.yml extended with the registered trades.
+     * A registered trade is skipped while its id is taken by config.yml or an earlier plugin.
+     * Global stock is matched to the catalog under the same lock, so it always follows the latest one.
+     */
+    private synchronized TradeCatalog publish(TradeCatalog fromConfig) {
+        configCatalog = fromConfig;
+        if (registered.isEmpty()) {
+            catalog = fromConfig;
+            plugin.getGlobalStock().sync(fromConfig);
+            plugin.getMetrics().retainTrades(fromConfig);
+            return fromConfig;
+        }
 
-        // Create weighted list
-        List<Trade> weightedPool = new ArrayList<>();
+        List<Trade> trades = new ArrayList<>(fromConfig.getTrades());
+        Set<String> ids = new HashSet<>();
         for (Trade trade : trades) {
-            for (int i = 0; i < trade.getWeight(); i++) {
-                weightedPool.add(trade);
+            ids.add(trade.getId());
+        }
+        for (Map.Entry<String, SortedMap<String, Trade>> entry : registered.entrySet()) {
+            for (Trade trade : entry.getValue().values()) {
+                if (!trade.isEnabled()) {
+                    continue;
+                }
+                if (!ids.add(trade.getId())) {
+                    plugin.getLogger().warning("Ignoring trade '" + trade.getId() + "' registered by "
+                            + entry.getKey() + ": the id is already in use");
+                    continue;
+                }
+                trades.add(trade);
             }
         }
+        TradeCatalog merged = new TradeCatalog(trades, fromConfig.getMinTrades(), fromConfig.getMaxTrades(),
+                fromConfig.isReplaceAllTrades(), fromConfig.isDeterministicTrades(), fromConfig.getSeedSalt(),
+                fromConfig.isLazyTrades());
+        catalog = merged;
+        plugin.getGlobalStock().sync(merged);
+        plugin.getMetrics().retainTrades(merged);
+        return merged;
+    }
 
-        // Select random trades without duplicates
-        List<Trade> selected = new ArrayList<>();
-        List<Trade> availableTrades = new ArrayList<>(trades);
-        
-        for (int i = 0; i < numTrades && !availableTrades.isEmpty(); i++) {
-            // Build weighted pool from available trades
-            List<Trade> currentPool = new ArrayList<>();
-            for (Trade trade : availableTrades) {
-                for (int j = 0; j < trade.getWeight(); j++) {
-                    currentPool.add(trade);
-                }
+    /**
+     * @return Restart-only sections whose values in config.yml differ from the ones in use,
+     *         as of the last successful reload
+     */
+    public List<String> getRestartPending() {
+        return restartPending;
+    }
+
+    private List<String> changedSettings(ConfigurationSection config) {
+        Map<String, Map<String, Object>> fresh = settingsOf(config);
+        List<String> changed = new ArrayList<>();
+        for (String section : RESTART_SECTIONS) {
+            if (!Objects.equals(activeSettings.get(section), fresh.get(section))) {
+                changed.add(section);
             }
-            
-            if (currentPool.isEmpty()) break;
-            
-            Trade selectedTrade = currentPool.get(random.nextInt(currentPool.size()));
-            selected.add(selectedTrade);
-            availableTrades.remove(selectedTrade);
         }
+        return List.copyOf(changed);
+    }
+
+    private static Map<String, Map<String, Object>> settingsOf(ConfigurationSection config) {
+        Map<String, Map<String, Object>> settings = new HashMap<>();
+        for (String key : RESTART_SECTIONS) {
+            ConfigurationSection section = config.getConfigurationSection(key);
+            settings.put(key, section != null ? TradeLoader.plainValues(section) : Map.of());
+        }
+        return settings;
+    }
+
+    private byte[] readConfigFile() throws Exception {
+        return Files.readAllBytes(new File(plugin.getDataFolder(), "config.yml").toPath());
+    }
+
+    /**
+     * Returns the catalog of config.yml, reusing the compiled cache when the file is unchanged.
+     * Otherwise only trades whose section changed since the last parse are built again.
+     * Any parse result is written back to the cache for the next start.
+     * @param config The file already parsed, or null to parse it only on a cache miss
+     */
+    private TradeCatalog readCatalog(byte[] raw, YamlConfiguration config) throws Exception {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(raw);
+
+        TradeCatalog cached = cache.read(hash);
+        if (cached != null) {
+            plugin.getLogger().fine("Loaded " + cached.size() + " trades from compiled catalog cache");
+            return cached;
+        }
+
+        TradeCatalog loaded = loader.reload(config != null ? config : parseConfig(new String(raw, StandardCharsets.UTF_8)));
+        cache.write(hash, loaded);
+        return loaded;
+    }
+
+    private YamlConfiguration parseConfig(String contents) throws Exception {
+        YamlConfiguration config = new YamlConfiguration();
+        // Strict load: a broken file must fail the reload instead of producing an empty catalog
+        config.loadFromString(contents);
+
+        InputStream defaults = plugin.getResource("config.yml");
+        if (defaults != null) {
+            config.setDefaults(YamlConfiguration.loadConfiguration(
+                    new InputStreamReader(defaults, StandardCharsets.UTF_8)));
+        }
+        return config;
+    }
+
+    /**
+     * Selects random trades based on configured min/max values.
+     * Uses the calling thread's generator, so region threads never contend on shared state.
+     * @return List of randomly selected trades
+     */
+    public List<Trade> selectRandomTrades() {
+        return catalog.selectRandomTrades(ThreadLocalRandom.current());
+    }
+
+    /**
+     * Selects trades for a specific trader from the pool configured for its location.
+     * In deterministic mode the result depends only on the trader, world seed and seed salt,
+     * so the same offers can be re-derived later instead of being stored.
+     * @param traderId UUID of the trader
+     * @param location Where the trader is
+     * @return List of selected trades
+     */
+    public List<Trade> selectTradesFor(UUID traderId, Location location) {
+        return catalog.selectTradesFor(traderId, location);
+    }
+
+    /**
+     * Selects random trades using a generator owned by the caller.
+     * @return List of randomly selected trades
+     */
+    public List<Trade> selectRandomTrades(RandomGenerator random) {
+        return catalog.selectRandomTrades(random);
+    }
 
-        return selected;
+    /**
+     * Returns the currently published catalog.
+     * Callers needing several settings at once should read them all from the same snapshot.
+     */
+    public TradeCatalog getCatalog() {
+        return catalog;
     }
 
+    /**
+     * @return Views over the current catalog's packed trade table, shared rather than copied
+     */
     public List<Trade> getAllTrades() {
-        return new ArrayList<>(trades);
+        return catalog.getTrades();
     }
 
     public int getMinTrades() {
-        return minTrades;
+        return catalog.getMinTrades();
     }
 
     public int getMaxTrades() {
-        return maxTrades;
+        return catalog.getMaxTrades();
     }
 
     public boolean isReplaceAllTrades() {
-        return replaceAllTrades;
+        return catalog.isReplaceAllTrades();
+    }
+
+    public boolean isDeterministicTrades() {
+        return catalog.isDeterministicTrades();
     }
 }
@@ -0,0 +1,137 @@
+package su.brim.config;
+
+import su.brim.model.Trade;
+import su.brim.model.TradeContext;
+import su.brim.util.WeightedSampler;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Precomputed samplers for every world/dimension/biome combination the config distinguishes.
+ * Worlds and biomes never named by any trade collapse into a shared "other" slot, so the table
+ * stays small, and identical trade pools share one sampler.
+ * Resolving a trader's pool is two hash lookups and an array index, independent of catalog size.
+ */
+final class TradeContextIndex {
+
+    private static final int OTHER = 0;
+    private static final World.Environment[] ENVIRONMENTS = World.Environment.values();
+
+    private final WeightedSampler<Trade> everywhere;
+    private final boolean contextual;
+    private final Map<String, Integer> worldSlots;
+    private final Map<NamespacedKey, Integer> biomeSlots;
+    private final int biomeSlotCount;
+    private final List<WeightedSampler<Trade>> samplers;
+
+    private TradeContextIndex(WeightedSampler<Trade> everywhere, boolean contextual,
+                              Map<String, Integer> worldSlots, Map<NamespacedKey, Integer> biomeSlots,
+                              List<WeightedSampler<Trade>> samplers) {
+        this.everywhere = everywhere;
+        this.contextual = contextual;
+        this.worldSlots = worldSlots;
+        this.biomeSlots = biomeSlots;
+        this.biomeSlotCount = biomeSlots.size() + 1;
+        this.samplers = samplers;
+    }
+
+    /**
+     * Compiles the index for a list of trades.
+     * @param everywhere Sampler over all trades, reused when no trade has context filters
+     */
+    static TradeContextIndex build(List<Trade> trades, WeightedSampler<Trade> everywhere) {
+        Set<String> worlds = new LinkedHashSet<>();
+        Set<NamespacedKey> biomes = new LinkedHashSet<>();
+        boolean contextual = false;
+        for (Trade trade : trades) {
+            TradeContext context = trade.getContext();
+            if (!context.isAnywhere()) {
+                contextual = true;
+                worlds.addAll(context.getWorlds());
+                biomes.addAll(context.getBiomes());
+            }
+        }
+
+        if (!contextual) {
+            return new TradeContextIndex(everywhere, false, Map.of(), Map.of(), List.of());
+        }
+
+        Map<String, Integer> worldSlots = slots(worlds);
+        Map<NamespacedKey, Integer> biomeSlots = slots(biomes);
+        List<String> worldNames = new ArrayList<>(worlds);
+        List<NamespacedKey> biomeKeys = new ArrayList<>(biomes);
+
+        int worldSlotCount = worlds.size() + 1;
+        int biomeSlotCount = biomes.size() + 1;
+        List<WeightedSampler<Trade>> samplers = new ArrayList<>(worldSlotCount * ENVIRONMENTS.length * biomeSlotCount);
+        Map<BitSet, WeightedSampler<Trade>> distinctPools = new HashMap<>();
+
+        for (int w = 0; w < worldSlotCount; w++) {
+            String world = w == OTHER ? null : worldNames.get(w - 1);
+            for (World.Environment environment : ENVIRONMENTS) {
+                for (int b = 0; b < biomeSlotCount; b++) {
+                    NamespacedKey biome = b == OTHER ? null : biomeKeys.get(b - 1);
+
+                    BitSet members = new BitSet(trades.size());
+                    for (int i = 0; i < trades.size(); i++) {
+                        if (trades.get(i).getContext().matches(world, environment, biome)) {
+                            members.set(i);
+                        }
+                    }
+                    samplers.add(distinctPools.computeIfAbsent(members, set -> {
+                        List<Trade> pool = new ArrayList<>(set.cardinality());
+                        set.stream().forEach(i -> pool.add(trades.get(i)));
+                        return WeightedSampler.of(pool, Trade::getWeight);
+                    }));
+                }
+            }
+        }
+
+        return new TradeContextIndex(everywhere, true, worldSlots, biomeSlots, List.copyOf(samplers));
+    }
+
+    private static <K> Map<K, Integer> slots(Set<K> keys) {
+        Map<K, Integer> slots = new HashMap<>();
+        for (K key : keys) {
+            slots.put(key, slots.size() + 1);
+        }
+        return Map.copyOf(slots);
+    }
+
+    /**
+     * Returns the pool of trades offered at a location.
+     * Must run on the thread owning the location when biome filters are in use.
+     */
+    WeightedSampler<Trade> samplerFor(Location location) {
+        if (!contextual) {
+            return everywhere;
+        }
+
+        World world = location.getWorld();
+        int worldSlot = worldSlots.getOrDefault(world.getName(), OTHER);
+        int biomeSlot = OTHER;
+        if (!biomeSlots.isEmpty()) {
+            NamespacedKey biome = world.getBiome(location.getBlockX(), location.getBlockY(), location.getBlockZ()).getKey();
+            biomeSlot = biomeSlots.getOrDefault(biome, OTHER);
+        }
+
+        return samplers.get((worldSlot * ENVIRONMENTS.length + world.getEnvironment().ordinal()) * biomeSlotCount + biomeSlot);
+    }
+
+    boolean isContextual() {
+        return contextual;
+    }
+
+    int distinctPoolCount() {
+        return contextual ? (int) samplers.stream().distinct().count() : 1;
+    }
+}
@@ -0,0 +1,280 @@
+package su.brim.config;
+
+import su.brim.model.Trade;
+import su.brim.model.TradeContext;
+import su.brim.model.TradePricing;
+import su.brim.model.TradeStock;
+import su.brim.model.TradeTable;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Registry;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.enchantments.Enchantment;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Parses the trade configuration into an immutable {@link TradeCatalog}.
+ * {@link #load} is stateless; {@link #reload} remembers each trade's section so the next
+ * reload only parses trades whose section changed.
+ */
+public class TradeLoader {
+
+    private final Logger logger;
+
+    // Trade sections seen by the last reload, by trade id. Guarded by this.
+    private Map<String, Source> sources = Map.of();
+    private TradeTable lastTable;
+
+    public TradeLoader(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Builds a catalog from a config tree without touching any shared state.
+     * Safe to call from any thread.
+     */
+    public TradeCatalog load(ConfigurationSection config) {
+        return load(config, false);
+    }
+
+    /**
+     * Builds a catalog like {@link #load}, but takes trades whose section is unchanged since the last
+     * reload from the previous table instead of parsing them again, keeping their item prototypes.
+     * If no trade changed at all, the previous table itself is reused.
+     */
+    public synchronized TradeCatalog reload(ConfigurationSection config) {
+        return load(config, true);
+    }
+
+    private TradeCatalog load(ConfigurationSection config, boolean incremental) {
+        // Load general settings
+        int minTrades = config.getInt("settings.min-trades", 5);
+        int maxTrades = config.getInt("settings.max-trades", 8);
+        boolean replaceAllTrades = config.getBoolean("settings.replace-all-trades", true);
+        boolean deterministicTrades = config.getBoolean("settings.deterministic-trades", false);
+        long seedSalt = config.getLong("settings.seed-salt", 0L);
+        boolean lazyTrades = config.getBoolean("settings.lazy-trades", false);
+
+        TradeTable.Builder trades = TradeTable.builder();
+        Map<String, Source> nextSources = new HashMap<>();
+        Map<String, Integer> rows = new HashMap<>();
+        List<Trade> reusedRows = new ArrayList<>();
+        int parsed = 0;
+        ConfigurationSection tradesSection = config.getConfigurationSection("trades");
+        if (tradesSection == null) {
+            logger.warning("No trades section found in config.yml!");
+        } else {
+            for (String tradeId : tradesSection.getKeys(false)) {
+                ConfigurationSection tradeSection = tradesSection.getConfigurationSection(tradeId);
+                if (tradeSection == null) continue;
+
+                Map<String, Object> values = incremental ? plainValues(tradeSection) : null;
+                if (incremental) {
+                    Source previous = sources.get(tradeId);
+                    if (previous != null && previous.matches(values)) {
+                        if (previous.trade() != null) {
+                            rows.put(tradeId, trades.size());
+                            trades.add(previous.trade());
+                            reusedRows.add(previous.trade());
+                        }
+                        nextSources.put(tradeId, previous);
+                        continue;
+                    }
+                }
+
+                parsed++;
+                try {
+                    int row = trades.size();
+                    if (loadTrade(tradeId, tradeSection, trades)) {
+                        rows.put(tradeId, row);
+                    }
+                } catch (Exception e) {
+                    logger.log(Level.WARNING, "Failed to load trade '" + tradeId + "': " + e.getMessage());
+                }
+                if (incremental) {
+                    nextSources.put(tradeId, new Source(values, values.hashCode(), null));
+                }
+            }
+        }
+
+        TradeTable table;
+        if (incremental && parsed == 0 && lastTable != null && reusedRows.equals(lastTable.asList())) {
+            // Nothing changed in any trade, keep the same table and Trade instances
+            table = lastTable;
+        } else {
+            table = trades.build();
+        }
+
+        if (incremental) {
+            // Point every source at the new table, so old tables are not kept alive
+            for (Map.Entry<String, Integer> entry : rows.entrySet()) {
+                Source source = nextSources.get(entry.getKey());
+                nextSources.put(entry.getKey(), new Source(source.values(), source.hash(), table.get(entry.getValue())));
+            }
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine("Parsed " + parsed + " changed trades, reused " + reusedRows.size());
+            }
+            sources = nextSources;
+            lastTable = table;
+        }
+
+        return new TradeCatalog(table, minTrades, maxTrades, replaceAllTrades, deterministicTrades, seedSalt, lazyTrades);
+    }
+
+    /**
+     * Copies a section into plain nested maps, so two loads of the same YAML compare equal.
+     */
+    static Map<String, Object> plainValues(ConfigurationSection section) {
+        Map<String, Object> values = new HashMap<>();
+        for (String key : section.getKeys(false)) {
+            Object value = section.get(key);
+            values.put(key, value instanceof ConfigurationSection child ? plainValues(child) : value);
+        }
+        return values;
+    }
+
+    /**
+     * A trade section as last seen, with the trade built from it, or null if it was disabled or invalid.
+     */
+    private record Source(Map<String, Object> values, int hash, Trade trade) {
+
+        boolean matches(Map<String, Object> other) {
+            return hash == other.hashCode() && values.equals(other);
+        }
+    }
+
+    /**
+     * Parses one trade and adds it to the table unless it is invalid or disabled.
+     * @return true if the trade was added
+     */
+    private boolean loadTrade(String id, ConfigurationSection section, TradeTable.Builder table) {
+        boolean enabled = section.getBoolean("enabled", true);
+        
+        // Parse result
+        String resultMaterialStr = section.getString("result.material");
+        if (resultMaterialStr == null) {
+            logger.warning("Trade '" + id + "' missing result material!");
+            return false;
+        }
+        
+        Material resultMaterial = Material.matchMaterial(resultMaterialStr);
+        if (resultMaterial == null) {
+            logger.warning("Trade '" + id + "' has invalid result material: " + resultMaterialStr);
+            return false;
+        }
+        
+        int resultAmount = section.getInt("result.amount", 1);
+        
+        // Parse primary cost
+        String costMaterialStr = section.getString("cost.material", "DIAMOND");
+        Material costMaterial = Material.matchMaterial(costMaterialStr);
+        if (costMaterial == null) {
+            logger.warning("Trade '" + id + "' has invalid cost material: " + costMaterialStr);
+            return false;
+        }
+        
+        int costAmount = section.getInt("cost.amount", 1);
+        
+        // Parse secondary cost (optional)
+        Material secondCostMaterial = null;
+        int secondCostAmount = 0;
+        
+        if (section.contains("second-cost")) {
+            String secondCostMaterialStr = section.getString("second-cost.material");
+            if (secondCostMaterialStr != null) {
+                secondCostMaterial = Material.matchMaterial(secondCostMaterialStr);
+                if (secondCostMaterial != null) {
+                    secondCostAmount = section.getInt("second-cost.amount", 1);
+                }
+            }
+        }
+        
+        // Parse enchantments (for enchanted books)
+        Map<Enchantment, Integer> enchantments = new HashMap<>();
+        ConfigurationSection enchantSection = section.getConfigurationSection("enchantments");
+        if (enchantSection != null) {
+            for (String enchantKey : enchantSection.getKeys(false)) {
+                Enchantment enchantment = Registry.ENCHANTMENT.get(NamespacedKey.minecraft(enchantKey.toLowerCase()));
+                if (enchantment != null) {
+                    int level = enchantSection.getInt(enchantKey, 1);
+                    enchantments.put(enchantment, level);
+                } else {
+                    logger.warning("Trade '" + id + "' has invalid enchantment: " + enchantKey);
+                }
+            }
+        }
+        
+        int maxUses = section.getInt("max-uses", 3);
+        int weight = section.getInt("weight", 10);
+        
+        // Parse where the trade is offered (optional, empty = everywhere)
+        TradeContext context = TradeContext.of(
+                new HashSet<>(section.getStringList("worlds")),
+                loadEnvironments(id, section.getStringList("environments")),
+                loadBiomes(id, section.getStringList("biomes")));
+        
+        // Parse server-wide supply (optional, no limit by default)
+        TradeStock stock = TradeStock.of(
+                section.getInt("global-stock.limit", 0),
+                section.getInt("global-stock.restock-minutes", 60));
+        
+        // Parse demand-driven pricing of the primary cost (optional, static by default)
+        TradePricing pricing = TradePricing.STATIC;
+        if (section.contains("dynamic-price")) {
+            int maxStack = costMaterial.getMaxStackSize();
+            pricing = TradePricing.of(
+                    Math.min(maxStack, section.getInt("dynamic-price.floor", costAmount)),
+                    Math.min(maxStack, section.getInt("dynamic-price.ceiling", costAmount * 2)),
+                    section.getDouble("dynamic-price.step", 0.1),
+                    section.getDouble("dynamic-price.decay", 0.05));
+        }
+        
+        // Parse how often traders get this offer back (optional, never by default)
+        int restockMinutes = section.getInt("restock-minutes", 0);
+        
+        if (!enabled) {
+            return false;
+        }
+        table.add(id, resultMaterial, resultAmount,
+                costMaterial, costAmount,
+                secondCostMaterial, secondCostAmount,
+                maxUses, weight, enabled, enchantments, context, stock, pricing, restockMinutes);
+        return true;
+    }
+
+    private Set<World.Environment> loadEnvironments(String id, List<String> names) {
+        Set<World.Environment> environments = EnumSet.noneOf(World.Environment.class);
+        for (String name : names) {
+            try {
+                environments.add(World.Environment.valueOf(name.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                logger.warning("Trade '" + id + "' has invalid environment: " + name);
+            }
+        }
+        return environments;
+    }
+
+    private Set<NamespacedKey> loadBiomes(String id, List<String> names) {
+        Set<NamespacedKey> biomes = new HashSet<>();
+        for (String name : names) {
+            NamespacedKey key = NamespacedKey.fromString(name.toLowerCase(Locale.ROOT));
+            if (key != null && Registry.BIOME.get(key) != null) {
+                biomes.add(key);
+            } else {
+                logger.warning("Trade '" + id + "' has invalid biome: " + name);
+            }
+        }
+        return biomes;
+    }
+}
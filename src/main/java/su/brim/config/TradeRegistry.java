@@ -0,0 +1,123 @@
+package su.brim.config;
+
+import su.brim.WanderingTraderPlugin;
+import su.brim.api.TradeProvider;
+import su.brim.api.TradeTransaction;
+import su.brim.model.Trade;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.function.Consumer;
+
+/**
+ * The {@link TradeProvider} service registered with the ServicesManager.
+ * Transactions only record their changes; a commit replays them onto the plugin's current trades
+ * under the catalog lock and publishes one new catalog, so spawns pick it up with a single volatile read.
+ */
+public class TradeRegistry implements TradeProvider, Listener {
+
+    private final WanderingTraderPlugin plugin;
+    private final TradeConfig tradeConfig;
+
+    public TradeRegistry(WanderingTraderPlugin plugin) {
+        this.plugin = plugin;
+        this.tradeConfig = plugin.getTradeConfig();
+    }
+
+    @Override
+    public TradeCatalog getCatalog() {
+        return tradeConfig.getCatalog();
+    }
+
+    @Override
+    public List<Trade> getTrades(Plugin owner) {
+        return List.copyOf(tradeConfig.getRegistered(owner.getName()).values());
+    }
+
+    @Override
+    public TradeTransaction begin(Plugin owner) {
+        return new Transaction(owner.getName());
+    }
+
+    /**
+     * Drops the trades of a plugin that is being disabled, so no trader is offered trades of a missing plugin.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(PluginDisableEvent event) {
+        commit(event.getPlugin().getName(), Map::clear);
+    }
+
+    private TradeCatalog commit(String owner, Consumer<? super SortedMap<String, Trade>> changes) {
+        TradeCatalog previous = tradeConfig.getCatalog();
+        TradeCatalog published = tradeConfig.commitRegistered(owner, changes);
+        if (published != previous) {
+            plugin.getLogger().info(owner + " changed registered trades, " + published.size() + " trades active.");
+            if (published.getVersion() != previous.getVersion()) {
+                // Same as after a reload: traders near players pick up the new offers in the background
+                plugin.getRerollQueue().sweep();
+            }
+        }
+        return published;
+    }
+
+    private final class Transaction implements TradeTransaction {
+
+        private final String owner;
+        private final List<Consumer<Map<String, Trade>>> changes = new ArrayList<>();
+        private boolean committed;
+
+        Transaction(String owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public TradeTransaction register(Trade trade) {
+            Objects.requireNonNull(trade, "trade");
+            Objects.requireNonNull(trade.getId(), "trade id");
+            changes.add(trades -> trades.put(trade.getId(), trade));
+            return this;
+        }
+
+        @Override
+        public TradeTransaction registerAll(Collection<? extends Trade> trades) {
+            for (Trade trade : trades) {
+                register(trade);
+            }
+            return this;
+        }
+
+        @Override
+        public TradeTransaction remove(String id) {
+            changes.add(trades -> trades.remove(id));
+            return this;
+        }
+
+        @Override
+        public TradeTransaction clear() {
+            changes.add(Map::clear);
+            return this;
+        }
+
+        @Override
+        public TradeCatalog commit() {
+            if (committed) {
+                throw new IllegalStateException("Transaction already committed");
+            }
+            committed = true;
+            return TradeRegistry.this.commit(owner, trades -> {
+                for (Consumer<Map<String, Trade>> change : changes) {
+                    change.accept(trades);
+                }
+            });
+        }
+    }
+}
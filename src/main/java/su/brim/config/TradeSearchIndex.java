@@ -0,0 +1,108 @@
+package su.brim.config;
+
+import su.brim.model.Trade;
+import su.brim.util.PrefixIndex;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Lookup of catalog positions by trade id, result material, cost material and enchantment.
+ * Built once per catalog, so searching and completing never walk the trades.
+ * Every field is matched by prefix, case-insensitively.
+ */
+public final class TradeSearchIndex {
+
+    public enum Field {
+        ID("id"),
+        RESULT("result"),
+        COST("cost"),
+        ENCHANTMENT("ench");
+
+        private final String prefix;
+
+        Field(String prefix) {
+            this.prefix = prefix;
+        }
+
+        /**
+         * @return Name of the field in search filters, e.g. {@code cost:diamond}
+         */
+        public String getPrefix() {
+            return prefix;
+        }
+
+        /**
+         * @return The field with the given filter name, or null if there is none
+         */
+        public static Field byPrefix(String prefix) {
+            for (Field field : values()) {
+                if (field.prefix.equalsIgnoreCase(prefix)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final int size;
+    private final int[] all;
+    private final PrefixIndex[] fields;
+
+    private TradeSearchIndex(int size, PrefixIndex[] fields) {
+        this.size = size;
+        this.all = IntStream.range(0, size).toArray();
+        this.fields = fields;
+    }
+
+    static TradeSearchIndex build(List<Trade> trades) {
+        PrefixIndex.Builder ids = PrefixIndex.builder();
+        PrefixIndex.Builder results = PrefixIndex.builder();
+        PrefixIndex.Builder costs = PrefixIndex.builder();
+        PrefixIndex.Builder enchantments = PrefixIndex.builder();
+        for (int row = 0; row < trades.size(); row++) {
+            Trade trade = trades.get(row);
+            ids.add(trade.getId(), row);
+            results.add(trade.getResultMaterial().name(), row);
+            costs.add(trade.getCostMaterial().name(), row);
+            if (trade.getSecondCostMaterial() != null) {
+                costs.add(trade.getSecondCostMaterial().name(), row);
+            }
+            for (int i = 0; i < trade.getEnchantmentCount(); i++) {
+                enchantments.add(trade.getEnchantment(i).getKey().getKey(), row);
+            }
+        }
+
+        PrefixIndex[] fields = new PrefixIndex[Field.values().length];
+        fields[Field.ID.ordinal()] = ids.build();
+        fields[Field.RESULT.ordinal()] = results.build();
+        fields[Field.COST.ordinal()] = costs.build();
+        fields[Field.ENCHANTMENT.ordinal()] = enchantments.build();
+        return new TradeSearchIndex(trades.size(), fields);
+    }
+
+    /**
+     * @return Catalog positions of trades whose field starts with the prefix, ascending.
+     *         May be shared with the index, so callers must not modify it.
+     */
+    public int[] find(Field field, String prefix) {
+        if (prefix.isEmpty()) {
+            return all;
+        }
+        return fields[field.ordinal()].find(prefix, size);
+    }
+
+    /**
+     * @return Catalog positions of every trade, ascending
+     */
+    public int[] all() {
+        return all;
+    }
+
+    /**
+     * @return Up to {@code limit} known values of the field starting with the prefix
+     */
+    public List<String> complete(Field field, String prefix, int limit) {
+        return fields[field.ordinal()].complete(prefix, limit);
+    }
+}
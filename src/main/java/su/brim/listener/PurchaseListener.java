@@ -0,0 +1,81 @@
+package su.brim.listener;
+
+import io.papermc.paper.event.player.PlayerTradeEvent;
+import su.brim.audit.PurchaseLog;
+import su.brim.model.Trade;
+import su.brim.pricing.DynamicPricing;
+import su.brim.stock.GlobalStock;
+import org.bukkit.entity.WanderingTrader;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+/**
+ * Watches purchases from wandering traders and maps them back to configured trades.
+ * Fires on the region owning the trader, so everything here must stay cheap and lock-free.
+ */
+public class PurchaseListener implements Listener {
+
+    private final TradeApplier applier;
+    private final GlobalStock stock;
+    private final DynamicPricing pricing;
+    private final PurchaseLog purchaseLog;
+
+    // Trade whose stock was reserved for the event currently dispatched on this thread, released if it gets cancelled
+    private final ThreadLocal<Trade> reserved = new ThreadLocal<>();
+
+    public PurchaseListener(TradeApplier applier, GlobalStock stock, DynamicPricing pricing,
+                            PurchaseLog purchaseLog) {
+        this.applier = applier;
+        this.stock = stock;
+        this.pricing = pricing;
+        this.purchaseLog = purchaseLog;
+    }
+
+    /**
+     * Reserves a unit of global stock, refusing the purchase if the trade is sold out server-wide.
+     */
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onPlayerTrade(PlayerTradeEvent event) {
+        if (!(event.getVillager() instanceof WanderingTrader trader)) {
+            return;
+        }
+        Trade trade = applier.findCustomTrade(trader, event.getTrade());
+        if (trade == null || !trade.hasLimitedStock()) {
+            return;
+        }
+        if (!stock.tryAcquire(trade)) {
+            event.setCancelled(true);
+            event.getPlayer().sendMessage("§cThis trade is sold out across the server. Check back later!");
+            return;
+        }
+        reserved.set(trade);
+    }
+
+    /**
+     * Records the purchase once its outcome is final, or hands the reserved unit back
+     * if another plugin cancelled it after us.
+     * The trade is matched again here, as plugins in between may have changed the recipe.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerTradeCompleted(PlayerTradeEvent event) {
+        Trade reservation = reserved.get();
+        reserved.remove();
+        if (event.isCancelled()) {
+            if (reservation != null) {
+                stock.release(reservation);
+            }
+            return;
+        }
+
+        if (!(event.getVillager() instanceof WanderingTrader trader)) {
+            return;
+        }
+        Trade trade = applier.findCustomTrade(trader, event.getTrade());
+        if (trade == null) {
+            return;
+        }
+        pricing.recordPurchase(trade);
+        purchaseLog.record(event.getPlayer(), event.getVillager(), trade, event.getTrade());
+    }
+}
@@ -0,0 +1,292 @@
+package su.brim.listener;
+
+import su.brim.WanderingTraderPlugin;
+import su.brim.config.TradeCatalog;
+import su.brim.metrics.TradeMetrics;
+import su.brim.model.Trade;
+import su.brim.model.TradeTable;
+import su.brim.pricing.DynamicPricing;
+import su.brim.scheduler.RestockEngine;
+import su.brim.stock.GlobalStock;
+import su.brim.trace.TraceBuffer;
+import su.brim.trace.TraceEvent;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.WanderingTrader;
+import org.bukkit.inventory.MerchantRecipe;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rolls and applies custom trades to wandering traders.
+ * Tracks on each trader which catalog version its offers came from, so stale traders
+ * can be found after a reload or when their chunk loads again.
+ * All methods must be called from the trader's owning region thread.
+ */
+public class TradeApplier {
+
+    private final WanderingTraderPlugin plugin;
+    private final TradeMetrics metrics;
+    private final GlobalStock stock;
+    private final DynamicPricing pricing;
+    private final RestockEngine restock;
+    private final TraceBuffer trace;
+    
+    // Catalog version the trader's offers were rolled from, stored on the trader itself
+    private final NamespacedKey appliedKey;
+    // Set between claiming a spawned trader and rolling its offers
+    private final NamespacedKey claimKey;
+    // Number of vanilla recipes kept in front of the custom ones when not replacing all trades
+    private final NamespacedKey vanillaKey;
+    // Catalog positions of lazily rolled trades whose recipes are not built yet
+    private final NamespacedKey pendingKey;
+    // Position of the first custom recipe, then the content hash of the trade behind each custom recipe
+    private final NamespacedKey customKey;
+
+    public TradeApplier(WanderingTraderPlugin plugin) {
+        this.plugin = plugin;
+        this.metrics = plugin.getMetrics();
+        this.stock = plugin.getGlobalStock();
+        this.pricing = plugin.getPricing();
+        this.restock = plugin.getRestock();
+        this.trace = plugin.getTrace();
+        this.appliedKey = new NamespacedKey(plugin, "trades_applied");
+        this.claimKey = new NamespacedKey(plugin, "trades_claimed");
+        this.vanillaKey = new NamespacedKey(plugin, "vanilla_trades");
+        this.pendingKey = new NamespacedKey(plugin, "pending_trades");
+        this.customKey = new NamespacedKey(plugin, "custom_trades");
+    }
+
+    /**
+     * Claims a freshly spawned trader for processing.
+     * A claimed trader counts as stale until its offers are rolled, so one whose roll never ran
+     * is still picked up by re-rolls.
+     * @return false if the trader was already claimed or processed
+     */
+    public boolean claim(WanderingTrader trader) {
+        PersistentDataContainer data = trader.getPersistentDataContainer();
+        if (data.has(appliedKey) || data.has(claimKey)) {
+            return false;
+        }
+        data.set(claimKey, PersistentDataType.BYTE, (byte) 1);
+        return true;
+    }
+
+    /**
+     * Drops the claim of a trader whose roll will not run, e.g. because it was removed while waiting.
+     */
+    public void releaseClaim(WanderingTrader trader) {
+        trader.getPersistentDataContainer().remove(claimKey);
+    }
+
+    /**
+     * Applies custom trades to a claimed trader, unless its offers were rolled since it was claimed,
+     * e.g. by a player opening it first.
+     */
+    public void applyClaimed(WanderingTrader trader) {
+        if (trader.getPersistentDataContainer().has(claimKey)) {
+            applyCustomTrades(trader);
+        }
+    }
+
+    /**
+     * @return true if the trader was never processed or its offers come from another catalog version
+     */
+    public boolean isStale(WanderingTrader trader) {
+        PersistentDataContainer data = trader.getPersistentDataContainer();
+        if (!data.has(appliedKey, PersistentDataType.INTEGER)) {
+            return true;
+        }
+        return data.get(appliedKey, PersistentDataType.INTEGER) != plugin.getTradeConfig().getCatalog().getVersion();
+    }
+
+    /**
+     * Applies custom trades to the wandering trader, replacing any custom trades rolled before.
+     * In lazy mode only the rolled trade positions are stored, see {@link #materializePending}.
+     */
+    public void applyCustomTrades(WanderingTrader trader) {
+        // Read one snapshot so a concurrent reload can't mix settings from two configs
+        TradeCatalog catalog = plugin.getTradeConfig().getCatalog();
+        if (catalog.isLazyTrades()) {
+            encodePending(trader, catalog);
+        } else {
+            applyCustomTrades(trader, catalog);
+        }
+    }
+
+    /**
+     * Applies custom trades right away, ignoring lazy mode.
+     */
+    public void applyCustomTradesNow(WanderingTrader trader) {
+        applyCustomTrades(trader, plugin.getTradeConfig().getCatalog());
+    }
+
+    /**
+     * @return true if the trader rolled its trades lazily and has not been opened since
+     */
+    public boolean hasPending(WanderingTrader trader) {
+        return trader.getPersistentDataContainer().has(pendingKey, PersistentDataType.INTEGER_ARRAY);
+    }
+
+    /**
+     * Builds and sets the recipes of a lazily rolled trader.
+     * Trades rolled from another catalog version can't be decoded and are rolled again.
+     * @return false if the trader had nothing pending
+     */
+    public boolean materializePending(WanderingTrader trader) {
+        PersistentDataContainer data = trader.getPersistentDataContainer();
+        int[] indices = data.get(pendingKey, PersistentDataType.INTEGER_ARRAY);
+        if (indices == null) {
+            return false;
+        }
+        data.remove(pendingKey);
+
+        TradeCatalog catalog = plugin.getTradeConfig().getCatalog();
+        Integer rolledFrom = data.get(appliedKey, PersistentDataType.INTEGER);
+        // Empty for nothing rolled, and for deterministic rolls stored before their positions were kept
+        if (rolledFrom == null || rolledFrom != catalog.getVersion() || indices.length == 0) {
+            applyCustomTrades(trader, catalog);
+            metrics.recordLazyMaterialized();
+            return true;
+        }
+
+        List<Trade> selectedTrades = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            Trade trade = catalog.getTrade(index);
+            if (trade != null) {
+                selectedTrades.add(trade);
+            }
+        }
+        setRecipes(trader, catalog, selectedTrades);
+        metrics.recordLazyMaterialized();
+        return true;
+    }
+
+    /**
+     * Finds the configured trade behind a recipe the trader offers.
+     * Only recipes at positions tagged as custom when the offers were set are considered,
+     * so vanilla recipes selling the same item are never mistaken for configured trades.
+     * @return The trade, or null for vanilla recipes and trades changed or removed since
+     */
+    public Trade findCustomTrade(WanderingTrader trader, MerchantRecipe recipe) {
+        PersistentDataContainer data = trader.getPersistentDataContainer();
+        int[] custom = data.get(customKey, PersistentDataType.INTEGER_ARRAY);
+        TradeCatalog catalog = plugin.getTradeConfig().getCatalog();
+        if (custom == null) {
+            // Offers set before custom recipes were tagged, or not set yet
+            return data.has(appliedKey) && !data.has(pendingKey) ? catalog.findTrade(recipe) : null;
+        }
+
+        int recipeCount = trader.getRecipeCount();
+        for (int i = 1; i < custom.length; i++) {
+            int recipeIndex = custom[0] + i - 1;
+            if (recipeIndex >= recipeCount) {
+                break;
+            }
+            MerchantRecipe offered = trader.getRecipe(recipeIndex);
+            if (offered == recipe || sameOffer(offered, recipe)) {
+                return catalog.findByContentHash(custom[i]);
+            }
+        }
+        return null;
+    }
+
+    private static boolean sameOffer(MerchantRecipe offered, MerchantRecipe recipe) {
+        return offered.getResult().equals(recipe.getResult())
+                && TradeTable.sameTypes(offered.getIngredients(), recipe.getIngredients());
+    }
+
+    private void applyCustomTrades(WanderingTrader trader, TradeCatalog catalog) {
+        List<Trade> selectedTrades = select(trader, catalog);
+        metrics.recordTraderProcessed();
+        
+        PersistentDataContainer data = trader.getPersistentDataContainer();
+        data.set(appliedKey, PersistentDataType.INTEGER, catalog.getVersion());
+        data.remove(claimKey);
+        data.remove(pendingKey);
+        
+        if (selectedTrades.isEmpty()) {
+            plugin.getLogger().warning("No trades available to apply to Wandering Trader!");
+            return;
+        }
+
+        setRecipes(trader, catalog, selectedTrades);
+    }
+
+    /**
+     * Stores the rolled trades as catalog positions instead of building recipes.
+     * Deterministic rolls are stored too: re-deriving them when opened would use wherever the trader
+     * wandered to by then, and whatever is sold out at that point.
+     */
+    private void encodePending(WanderingTrader trader, TradeCatalog catalog) {
+        List<Trade> selectedTrades = select(trader, catalog);
+        int[] indices = new int[selectedTrades.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = catalog.indexOf(selectedTrades.get(i));
+        }
+        metrics.recordTraderProcessed();
+
+        PersistentDataContainer data = trader.getPersistentDataContainer();
+        data.set(appliedKey, PersistentDataType.INTEGER, catalog.getVersion());
+        data.remove(claimKey);
+        data.set(pendingKey, PersistentDataType.INTEGER_ARRAY, indices);
+    }
+
+    private List<Trade> select(WanderingTrader trader, TradeCatalog catalog) {
+        long selectionStart = System.nanoTime();
+        List<Trade> selectedTrades = catalog.selectTradesFor(trader.getUniqueId(), trader.getLocation(),
+                stock.unavailable());
+        long selectionNanos = System.nanoTime() - selectionStart;
+        metrics.recordSelection(selectionNanos);
+        trace.trader(TraceEvent.SELECT, trader.getUniqueId(), selectedTrades.size(), selectionNanos);
+        return selectedTrades;
+    }
+
+    private void setRecipes(WanderingTrader trader, TradeCatalog catalog, List<Trade> selectedTrades) {
+        PersistentDataContainer data = trader.getPersistentDataContainer();
+        List<MerchantRecipe> recipes = new ArrayList<>();
+
+        // Keep original trades if configured to not replace all
+        if (!catalog.isReplaceAllTrades()) {
+            List<MerchantRecipe> current = trader.getRecipes();
+            int[] previous = data.get(customKey, PersistentDataType.INTEGER_ARRAY);
+            Integer vanilla = data.get(vanillaKey, PersistentDataType.INTEGER);
+            if (previous != null) {
+                // Custom offers start right after the vanilla ones, none if they were replaced
+                recipes.addAll(current.subList(0, Math.min(current.size(), previous[0])));
+            } else if (vanilla != null) {
+                recipes.addAll(current.subList(0, Math.min(current.size(), vanilla)));
+            } else {
+                // Untagged: a fresh trader, or offers set by an older version; keep what isn't a configured trade
+                for (MerchantRecipe recipe : current) {
+                    if (catalog.findTrade(recipe) == null) {
+                        recipes.add(recipe);
+                    }
+                }
+            }
+            data.set(vanillaKey, PersistentDataType.INTEGER, recipes.size());
+        }
+
+        // Add custom trades, tagged so purchases can be traced back to them
+        int firstCustom = recipes.size();
+        int[] custom = new int[selectedTrades.size() + 1];
+        custom[0] = firstCustom;
+        long buildStart = System.nanoTime();
+        for (int i = 0; i < selectedTrades.size(); i++) {
+            Trade trade = selectedTrades.get(i);
+            recipes.add(trade.toMerchantRecipe(pricing.getCost(trade)));
+            custom[i + 1] = trade.contentHash();
+            metrics.recordTradeSelected(trade.getId());
+        }
+        long buildNanos = System.nanoTime() - buildStart;
+        metrics.recordRecipeBuild(buildNanos);
+
+        // Apply the new recipe list
+        trader.setRecipes(recipes);
+        data.set(customKey, PersistentDataType.INTEGER_ARRAY, custom);
+        restock.track(trader, catalog, selectedTrades, firstCustom);
+        trace.trader(TraceEvent.APPLY, trader.getUniqueId(), catalog.getVersion(), buildNanos);
+    }
+}
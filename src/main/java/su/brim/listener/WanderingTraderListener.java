@@ -1,21 +1,21 @@
 package su.brim.listener;
 
 import su.brim.WanderingTraderPlugin;
-import su.brim.model.Trade;
+import su.brim.metrics.TradeMetrics;
+import su.brim.scheduler.RestockEngine;
+import su.brim.scheduler.SpawnAdmission;
+import su.brim.scheduler.TraderRerollQueue;
+import su.brim.trace.TraceBuffer;
+import su.brim.trace.TraceEvent;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.WanderingTrader;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.CreatureSpawnEvent;
-import org.bukkit.event.entity.EntitySpawnEvent;
-import org.bukkit.inventory.MerchantRecipe;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import org.bukkit.event.player.PlayerInteractEntityEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
 
 /**
  * Listens for Wandering Trader spawns and replaces their trades.
@@ -23,15 +23,21 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class WanderingTraderListener implements Listener {
 
-    private final WanderingTraderPlugin plugin;
-    
-    // Track processed traders to avoid duplicate processing
-    // Using ConcurrentHashMap for thread-safety in Folia's parallel regions
-    private final Set<UUID> processedTraders;
+    private final TradeMetrics metrics;
+    private final TraceBuffer trace;
+    private final TradeApplier applier;
+    private final TraderRerollQueue rerollQueue;
+    private final SpawnAdmission admission;
+    private final RestockEngine restock;
 
-    public WanderingTraderListener(WanderingTraderPlugin plugin) {
-        this.plugin = plugin;
-        this.processedTraders = ConcurrentHashMap.newKeySet();
+    public WanderingTraderListener(WanderingTraderPlugin plugin, TradeApplier applier, TraderRerollQueue rerollQueue,
+                                   SpawnAdmission admission) {
+        this.metrics = plugin.getMetrics();
+        this.trace = plugin.getTrace();
+        this.applier = applier;
+        this.rerollQueue = rerollQueue;
+        this.admission = admission;
+        this.restock = plugin.getRestock();
     }
 
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
@@ -41,63 +47,54 @@ public class WanderingTraderListener implements Listener {
         }
 
         WanderingTrader trader = (WanderingTrader) event.getEntity();
-        UUID traderId = trader.getUniqueId();
 
-        // Prevent duplicate processing
-        if (!processedTraders.add(traderId)) {
+        // Prevent duplicate processing. The spawn event fires on the region owning the
+        // entity, so reading and writing its data container here is safe.
+        if (!applier.claim(trader)) {
+            metrics.recordDuplicateSkipped();
+            trace.trader(TraceEvent.SPAWN, trader.getUniqueId(), 0, 0);
             return;
         }
+        trace.trader(TraceEvent.SPAWN, trader.getUniqueId(), 1, 0);
 
-        // Use Folia's EntityScheduler to ensure we're on the correct thread
-        // The entity scheduler runs the task on the region that owns this entity
-        trader.getScheduler().run(plugin, scheduledTask -> {
-            try {
-                applyCustomTrades(trader);
-            } finally {
-                // Clean up after a delay to handle edge cases
-                // Schedule cleanup on the entity's region
-                trader.getScheduler().runDelayed(plugin, cleanupTask -> {
-                    processedTraders.remove(traderId);
-                }, null, 100L); // 5 seconds (100 ticks)
-            }
-        }, null);
+        // Trades are applied on a later tick, as soon as the region's admission limit allows
+        admission.submit(trader);
     }
 
     /**
-     * Applies custom trades to the wandering trader.
-     * Must be called from the entity's owning region thread.
+     * Queues traders loaded from disk whose offers predate the current config,
+     * including traders saved before the plugin was installed.
+     * Up to date traders get the restocks they missed while unloaded.
+     * Fires on the region owning the chunk, so the traders' data can be read here.
      */
-    private void applyCustomTrades(WanderingTrader trader) {
-        List<Trade> selectedTrades = plugin.getTradeConfig().selectRandomTrades();
-        
-        if (selectedTrades.isEmpty()) {
-            plugin.getLogger().warning("No trades available to apply to Wandering Trader!");
-            return;
-        }
-
-        List<MerchantRecipe> recipes = new ArrayList<>();
-
-        // Keep original trades if configured to not replace all
-        if (!plugin.getTradeConfig().isReplaceAllTrades()) {
-            recipes.addAll(trader.getRecipes());
-        }
-
-        // Add custom trades
-        for (Trade trade : selectedTrades) {
-            recipes.add(trade.toMerchantRecipe());
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        for (Entity entity : event.getEntities()) {
+            if (!(entity instanceof WanderingTrader trader)) {
+                continue;
+            }
+            if (rerollQueue.isEnabled() && applier.isStale(trader)) {
+                rerollQueue.enqueue(trader);
+            } else {
+                restock.resume(trader);
+            }
         }
-
-        // Apply the new recipe list
-        trader.setRecipes(recipes);
-        
-        plugin.getLogger().fine("Applied " + selectedTrades.size() + 
-                " custom trades to Wandering Trader at " + trader.getLocation());
     }
 
     /**
-     * Cleanup method called when plugin disables.
+     * Re-rolls a stale trader right before a player opens it, so old offers are never shown.
+     * Lazily rolled traders get their recipes built here, before the trade window opens.
      */
-    public void cleanup() {
-        processedTraders.clear();
+    @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
+    public void onPlayerInteractEntity(PlayerInteractEntityEvent event) {
+        if (!(event.getRightClicked() instanceof WanderingTrader trader)) {
+            return;
+        }
+        if (rerollQueue.isEnabled() && applier.isStale(trader)) {
+            applier.applyCustomTradesNow(trader);
+            metrics.recordReroll();
+        } else {
+            applier.materializePending(trader);
+        }
     }
 }
@@ -0,0 +1,163 @@
+package su.brim.metrics;
+
+import su.brim.config.TradeCatalog;
+import su.brim.model.Trade;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime counters for the spawn path.
+ * Built on LongAdder and lock-free histograms so every region thread can record without contention.
+ * Recording methods never allocate once a trade id has been seen.
+ */
+public class TradeMetrics {
+
+    private static final int TOP_TRADES = 10;
+
+    private final long startedAt = System.currentTimeMillis();
+    private final LongAdder tradersProcessed = new LongAdder();
+    private final LongAdder duplicatesSkipped = new LongAdder();
+    private final LongAdder rerolls = new LongAdder();
+    private final LongAdder lazyMaterialized = new LongAdder();
+    private final LongAdder restocks = new LongAdder();
+    private final LatencyHistogram selectionLatency = new LatencyHistogram();
+    private final LatencyHistogram recipeBuildLatency = new LatencyHistogram();
+    private final LatencyHistogram spawnToApplyLatency = new LatencyHistogram();
+    private final Map<String, LongAdder> tradeSelections = new ConcurrentHashMap<>();
+
+    public void recordTraderProcessed() {
+        tradersProcessed.increment();
+    }
+
+    public void recordDuplicateSkipped() {
+        duplicatesSkipped.increment();
+    }
+
+    public void recordReroll() {
+        rerolls.increment();
+    }
+
+    public void recordLazyMaterialized() {
+        lazyMaterialized.increment();
+    }
+
+    public void recordRestock() {
+        restocks.increment();
+    }
+
+    public void recordSelection(long nanos) {
+        selectionLatency.record(nanos);
+    }
+
+    public void recordRecipeBuild(long nanos) {
+        recipeBuildLatency.record(nanos);
+    }
+
+    public void recordSpawnToApply(long nanos) {
+        spawnToApplyLatency.record(nanos);
+    }
+
+    public void recordTradeSelected(String tradeId) {
+        LongAdder counter = tradeSelections.get(tradeId);
+        if (counter == null) {
+            counter = tradeSelections.computeIfAbsent(tradeId, id -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * Drops the selection counters of trades that are no longer in the catalog,
+     * so renamed and removed trades don't pile up across reloads.
+     */
+    public void retainTrades(TradeCatalog catalog) {
+        Set<String> ids = new HashSet<>(catalog.size() * 2);
+        for (Trade trade : catalog.getTrades()) {
+            ids.add(trade.getId());
+        }
+        tradeSelections.keySet().retainAll(ids);
+    }
+
+    public void reset() {
+        tradersProcessed.reset();
+        duplicatesSkipped.reset();
+        rerolls.reset();
+        lazyMaterialized.reset();
+        restocks.reset();
+        selectionLatency.reset();
+        recipeBuildLatency.reset();
+        spawnToApplyLatency.reset();
+        tradeSelections.clear();
+    }
+
+    /**
+     * Renders a plain-text snapshot of all counters, one line per entry.
+     * Values read while other threads record may be slightly out of step with each other.
+     */
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        long uptimeSeconds = Math.max(1, (System.currentTimeMillis() - startedAt) / 1000);
+        long processed = tradersProcessed.sum();
+
+        lines.add("Traders processed: " + processed + " (" + String.format("%.2f", processed / (double) uptimeSeconds) + "/s)");
+        lines.add("Duplicate spawns skipped: " + duplicatesSkipped.sum());
+        lines.add("Stale traders re-rolled: " + rerolls.sum());
+        lines.add("Lazy traders materialized: " + lazyMaterialized.sum());
+        lines.add("Offers restocked: " + restocks.sum());
+        lines.add(describe("Selection", selectionLatency));
+        lines.add(describe("Recipe build", recipeBuildLatency));
+        lines.add(describe("Spawn to applied", spawnToApplyLatency));
+
+        List<Map.Entry<String, Long>> top = tradeSelections.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(TOP_TRADES)
+                .toList();
+        if (!top.isEmpty()) {
+            lines.add("Most selected trades:");
+            for (Map.Entry<String, Long> entry : top) {
+                lines.add("  " + entry.getKey() + ": " + entry.getValue());
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Appends a timestamped report to the given file. Meant for async scheduler threads only.
+     */
+    public void appendReport(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("=== " + Instant.now() + " ===");
+        lines.addAll(report());
+        Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static String describe(String name, LatencyHistogram histogram) {
+        return String.format("%s: n=%d mean=%s p50=%s p99=%s max=%s",
+                name,
+                histogram.getCount(),
+                formatNanos(histogram.getMeanNanos()),
+                formatNanos(histogram.getPercentileNanos(50)),
+                formatNanos(histogram.getPercentileNanos(99)),
+                formatNanos(histogram.getMaxNanos()));
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos >= 1_000_000) {
+            return String.format("%.2fms", nanos / 1_000_000.0);
+        }
+        return String.format("%.1fµs", nanos / 1_000.0);
+    }
+}
@@ -4,136 +4,265 @@ import org.bukkit.Material;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.MerchantRecipe;
-import org.bukkit.inventory.meta.EnchantmentStorageMeta;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Represents a custom trade for the Wandering Trader.
+ * A lightweight view over one row of a {@link TradeTable}; all data lives in the table's arrays.
  */
-public class Trade {
-
-    private final String id;
-    private final Material resultMaterial;
-    private final int resultAmount;
-    private final Material costMaterial;
-    private final int costAmount;
-    private final Material secondCostMaterial;
-    private final int secondCostAmount;
-    private final int maxUses;
-    private final int weight;
-    private final boolean enabled;
-    private final Map<Enchantment, Integer> enchantments;
+public final class Trade {
 
+    final TradeTable table;
+    final int index;
+
+    Trade(TradeTable table, int index) {
+        this.table = table;
+        this.index = index;
+    }
+
+    /**
+     * Creates a standalone trade backed by its own one-row table.
+     * Catalogs repack such trades into a shared table, so prefer {@link TradeTable.Builder} for many trades.
+     */
     public Trade(String id, Material resultMaterial, int resultAmount,
                  Material costMaterial, int costAmount,
                  Material secondCostMaterial, int secondCostAmount,
                  int maxUses, int weight, boolean enabled,
                  Map<Enchantment, Integer> enchantments) {
-        this.id = id;
-        this.resultMaterial = resultMaterial;
-        this.resultAmount = resultAmount;
-        this.costMaterial = costMaterial;
-        this.costAmount = costAmount;
-        this.secondCostMaterial = secondCostMaterial;
-        this.secondCostAmount = secondCostAmount;
-        this.maxUses = maxUses;
-        this.weight = weight;
-        this.enabled = enabled;
-        this.enchantments = enchantments != null ? new HashMap<>(enchantments) : Collections.emptyMap();
+        this(id, resultMaterial, resultAmount,
+                costMaterial, costAmount,
+                secondCostMaterial, secondCostAmount,
+                maxUses, weight, enabled, enchantments, TradeContext.ANYWHERE);
+    }
+
+    public Trade(String id, Material resultMaterial, int resultAmount,
+                 Material costMaterial, int costAmount,
+                 Material secondCostMaterial, int secondCostAmount,
+                 int maxUses, int weight, boolean enabled,
+                 Map<Enchantment, Integer> enchantments, TradeContext context) {
+        this(TradeTable.builder()
+                .add(id, resultMaterial, resultAmount,
+                        costMaterial, costAmount,
+                        secondCostMaterial, secondCostAmount,
+                        maxUses, weight, enabled, enchantments, context)
+                .build(), 0);
     }
 
     public String getId() {
-        return id;
+        return table.ids[index];
     }
 
     public Material getResultMaterial() {
-        return resultMaterial;
+        return TradeTable.material(table.resultMaterials[index]);
     }
 
     public int getResultAmount() {
-        return resultAmount;
+        return table.resultAmounts[index];
     }
 
     public Material getCostMaterial() {
-        return costMaterial;
+        return TradeTable.material(table.costMaterials[index]);
     }
 
     public int getCostAmount() {
-        return costAmount;
+        return table.costAmounts[index];
     }
 
     public Material getSecondCostMaterial() {
-        return secondCostMaterial;
+        return TradeTable.material(table.secondCostMaterials[index]);
     }
 
     public int getSecondCostAmount() {
-        return secondCostAmount;
+        return table.secondCostAmounts[index];
     }
 
     public int getMaxUses() {
-        return maxUses;
+        return table.maxUses[index];
     }
 
     public int getWeight() {
-        return weight;
+        return table.weights[index];
     }
 
     public boolean isEnabled() {
-        return enabled;
+        return table.enabled[index];
     }
 
+    /**
+     * Builds a map of the stored enchantments on every call. Prefer
+     * {@link #getEnchantmentCount()} with the indexed getters on hot paths.
+     */
     public Map<Enchantment, Integer> getEnchantments() {
-        return Collections.unmodifiableMap(enchantments);
+        int count = getEnchantmentCount();
+        if (count == 0) {
+            return Map.of();
+        }
+        Map<Enchantment, Integer> map = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            map.put(getEnchantment(i), getEnchantmentLevel(i));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    public int getEnchantmentCount() {
+        return table.enchantmentStarts[index + 1] - table.enchantmentStarts[index];
+    }
+
+    public Enchantment getEnchantment(int i) {
+        return table.enchantments[table.enchantmentStarts[index] + i];
+    }
+
+    public int getEnchantmentLevel(int i) {
+        return table.enchantmentLevels[table.enchantmentStarts[index] + i];
     }
 
     public boolean hasEnchantments() {
-        return !enchantments.isEmpty();
+        return getEnchantmentCount() > 0;
+    }
+
+    public TradeContext getContext() {
+        return table.contexts[index];
+    }
+
+    public TradeStock getStock() {
+        return TradeStock.of(table.stockLimits[index], table.stockRestockMinutes[index]);
+    }
+
+    public boolean hasLimitedStock() {
+        return table.stockLimits[index] > 0;
+    }
+
+    /**
+     * Minutes after which a trader offering this trade has its uses reset.
+     * Unrelated to the server-wide {@link #getStock() global stock} refill.
+     * @return Restock interval, or 0 if offers of this trade never restock
+     */
+    public int getRestockMinutes() {
+        return table.restockMinutes[index];
+    }
+
+    public boolean hasRestock() {
+        return table.restockMinutes[index] > 0;
+    }
+
+    public TradePricing getPricing() {
+        if (!hasDynamicPrice()) {
+            return TradePricing.STATIC;
+        }
+        return TradePricing.of(table.priceFloors[index], table.priceCeilings[index],
+                table.priceSteps[index], table.priceDecays[index]);
+    }
+
+    public boolean hasDynamicPrice() {
+        return table.priceFloors[index] > 0;
+    }
+
+    /**
+     * Hash of everything that affects the offered recipe or where it appears.
+     * Built from names and keys only, so it is stable across restarts and can be persisted.
+     * Global stock, dynamic pricing and restocking are left out: changing them must not re-roll traders already offering the trade.
+     */
+    public int contentHash() {
+        Material secondCostMaterial = getSecondCostMaterial();
+        TradeContext context = getContext();
+        int hash = getId().hashCode();
+        hash = 31 * hash + getResultMaterial().name().hashCode();
+        hash = 31 * hash + getResultAmount();
+        hash = 31 * hash + getCostMaterial().name().hashCode();
+        hash = 31 * hash + getCostAmount();
+        hash = 31 * hash + (secondCostMaterial != null ? secondCostMaterial.name().hashCode() : 0);
+        hash = 31 * hash + getSecondCostAmount();
+        hash = 31 * hash + getMaxUses();
+        hash = 31 * hash + getWeight();
+        // Order-independent sums, map and set iteration order is not stable
+        int enchantHash = 0;
+        for (int i = 0; i < getEnchantmentCount(); i++) {
+            enchantHash += getEnchantment(i).getKey().asString().hashCode() ^ getEnchantmentLevel(i);
+        }
+        hash = 31 * hash + enchantHash;
+        hash = 31 * hash + context.getWorlds().hashCode();
+        int environmentHash = 0;
+        for (var environment : context.getEnvironments()) {
+            environmentHash += environment.name().hashCode();
+        }
+        hash = 31 * hash + environmentHash;
+        hash = 31 * hash + context.getBiomes().stream().mapToInt(key -> key.asString().hashCode()).sum();
+        return hash;
+    }
+
+    /**
+     * Value comparison with a trade that may live in another table.
+     * Trades are views into their table and {@code equals} is identity, so a re-built trade never equals the old one.
+     * @return true if both trades are configured the same way, including stock, pricing and restocking
+     */
+    public boolean sameAs(Trade other) {
+        TradePricing pricing = getPricing();
+        TradePricing otherPricing = other.getPricing();
+        return getId().equals(other.getId())
+                && contentHash() == other.contentHash()
+                && isEnabled() == other.isEnabled()
+                && getStock().getLimit() == other.getStock().getLimit()
+                && getStock().getRestockMinutes() == other.getStock().getRestockMinutes()
+                && pricing.getFloor() == otherPricing.getFloor()
+                && pricing.getCeiling() == otherPricing.getCeiling()
+                && pricing.getStep() == otherPricing.getStep()
+                && pricing.getDecay() == otherPricing.getDecay()
+                && getRestockMinutes() == other.getRestockMinutes();
     }
 
     /**
      * Creates a MerchantRecipe from this trade configuration.
+     * Only clones the prebuilt item stacks, so no ItemMeta work happens on the spawn path.
      * @return The MerchantRecipe ready to be added to a trader
      */
     public MerchantRecipe toMerchantRecipe() {
-        ItemStack result = new ItemStack(resultMaterial, resultAmount);
+        return toMerchantRecipe(getCostAmount());
+    }
+
+    /**
+     * Creates a MerchantRecipe with the primary cost replaced, e.g. by a dynamic price.
+     * @param costAmount Amount of the primary cost item
+     * @return The MerchantRecipe ready to be added to a trader
+     */
+    public MerchantRecipe toMerchantRecipe(int costAmount) {
+        MerchantRecipe recipe = new MerchantRecipe(table.resultPrototypes[index].clone(), 0, getMaxUses(), false);
         
-        // Handle enchanted books
-        if (resultMaterial == Material.ENCHANTED_BOOK && !enchantments.isEmpty()) {
-            EnchantmentStorageMeta meta = (EnchantmentStorageMeta) result.getItemMeta();
-            if (meta != null) {
-                for (Map.Entry<Enchantment, Integer> entry : enchantments.entrySet()) {
-                    meta.addStoredEnchant(entry.getKey(), entry.getValue(), true);
-                }
-                result.setItemMeta(meta);
+        // MerchantRecipe copies ingredients on insertion, so the prototypes stay untouched
+        List<ItemStack> ingredients = table.ingredientPrototypes.get(index);
+        if (costAmount == getCostAmount()) {
+            recipe.setIngredients(ingredients);
+        } else {
+            ItemStack primary = ingredients.get(0).clone();
+            primary.setAmount(costAmount);
+            recipe.addIngredient(primary);
+            for (int i = 1; i < ingredients.size(); i++) {
+                recipe.addIngredient(ingredients.get(i));
             }
         }
         
-        MerchantRecipe recipe = new MerchantRecipe(result, 0, maxUses, false);
-        
-        // Add primary cost
-        recipe.addIngredient(new ItemStack(costMaterial, costAmount));
-        
-        // Add secondary cost if present
-        if (secondCostMaterial != null && secondCostAmount > 0) {
-            recipe.addIngredient(new ItemStack(secondCostMaterial, secondCostAmount));
-        }
-        
         return recipe;
     }
 
     @Override
     public String toString() {
+        Material secondCostMaterial = getSecondCostMaterial();
+        TradeContext context = getContext();
         return "Trade{" +
-                "id='" + id + '\'' +
-                ", result=" + resultAmount + "x " + resultMaterial +
-                ", cost=" + costAmount + "x " + costMaterial +
-                (secondCostMaterial != null ? ", secondCost=" + secondCostAmount + "x " + secondCostMaterial : "") +
-                ", maxUses=" + maxUses +
-                ", weight=" + weight +
-                ", enabled=" + enabled +
+                "id='" + getId() + '\'' +
+                ", result=" + getResultAmount() + "x " + getResultMaterial() +
+                ", cost=" + getCostAmount() + "x " + getCostMaterial() +
+                (secondCostMaterial != null ? ", secondCost=" + getSecondCostAmount() + "x " + secondCostMaterial : "") +
+                ", maxUses=" + getMaxUses() +
+                ", weight=" + getWeight() +
+                ", enabled=" + isEnabled() +
+                (!context.isAnywhere() ? ", context=" + context : "") +
+                (hasLimitedStock() ? ", stock=" + getStock() : "") +
+                (hasDynamicPrice() ? ", pricing=" + getPricing() : "") +
+                (hasRestock() ? ", restockMinutes=" + getRestockMinutes() : "") +
                 '}';
     }
 }
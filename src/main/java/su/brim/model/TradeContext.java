@@ -0,0 +1,70 @@
+package su.brim.model;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Where a trade may be offered: a set of worlds, dimensions and biomes.
+ * An empty set means "any", so a trade without filters is offered everywhere.
+ */
+public final class TradeContext {
+
+    public static final TradeContext ANYWHERE = new TradeContext(Set.of(), Set.of(), Set.of());
+
+    private final Set<String> worlds;
+    private final Set<World.Environment> environments;
+    private final Set<NamespacedKey> biomes;
+
+    public TradeContext(Set<String> worlds, Set<World.Environment> environments, Set<NamespacedKey> biomes) {
+        this.worlds = Set.copyOf(worlds);
+        this.environments = environments.isEmpty() ? Set.of() : Set.copyOf(EnumSet.copyOf(environments));
+        this.biomes = Set.copyOf(biomes);
+    }
+
+    public static TradeContext of(Set<String> worlds, Set<World.Environment> environments, Set<NamespacedKey> biomes) {
+        if (worlds.isEmpty() && environments.isEmpty() && biomes.isEmpty()) {
+            return ANYWHERE;
+        }
+        return new TradeContext(worlds, environments, biomes);
+    }
+
+    public boolean isAnywhere() {
+        return worlds.isEmpty() && environments.isEmpty() && biomes.isEmpty();
+    }
+
+    /**
+     * Checks a location against the filters.
+     * @param world World name, or null for a world no filter names
+     * @param environment Dimension of the world
+     * @param biome Biome key, or null for a biome no filter names
+     */
+    public boolean matches(String world, World.Environment environment, NamespacedKey biome) {
+        return (worlds.isEmpty() || world != null && worlds.contains(world))
+                && (environments.isEmpty() || environments.contains(environment))
+                && (biomes.isEmpty() || biome != null && biomes.contains(biome));
+    }
+
+    public Set<String> getWorlds() {
+        return worlds;
+    }
+
+    public Set<World.Environment> getEnvironments() {
+        return environments;
+    }
+
+    public Set<NamespacedKey> getBiomes() {
+        return biomes;
+    }
+
+    @Override
+    public String toString() {
+        return "TradeContext{" +
+                "worlds=" + worlds +
+                ", environments=" + environments +
+                ", biomes=" + biomes +
+                '}';
+    }
+}
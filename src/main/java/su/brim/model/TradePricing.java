@@ -0,0 +1,65 @@
+package su.brim.model;
+
+/**
+ * Demand-driven price range for a trade's primary cost.
+ * Each purchase pushes the price up by {@code step} times the configured cost, and the price
+ * drifts back down toward {@code floor} by {@code decay} of the gap every minute.
+ */
+public final class TradePricing {
+
+    public static final TradePricing STATIC = new TradePricing(0, 0, 0, 0);
+
+    private final int floor;
+    private final int ceiling;
+    private final double step;
+    private final double decay;
+
+    private TradePricing(int floor, int ceiling, double step, double decay) {
+        this.floor = floor;
+        this.ceiling = ceiling;
+        this.step = step;
+        this.decay = decay;
+    }
+
+    public static TradePricing of(int floor, int ceiling, double step, double decay) {
+        int lowest = Math.max(1, floor);
+        return new TradePricing(lowest, Math.max(lowest, ceiling),
+                Math.max(0, step), Math.min(1, Math.max(0, decay)));
+    }
+
+    public boolean isDynamic() {
+        return floor > 0;
+    }
+
+    public int getFloor() {
+        return floor;
+    }
+
+    public int getCeiling() {
+        return ceiling;
+    }
+
+    /**
+     * @return Price increase per purchase, as a fraction of the configured cost
+     */
+    public double getStep() {
+        return step;
+    }
+
+    /**
+     * @return Fraction of the distance to the floor the price falls each minute
+     */
+    public double getDecay() {
+        return decay;
+    }
+
+    @Override
+    public String toString() {
+        return "TradePricing{" +
+                "floor=" + floor +
+                ", ceiling=" + ceiling +
+                ", step=" + step +
+                ", decay=" + decay +
+                '}';
+    }
+}
@@ -0,0 +1,48 @@
+package su.brim.model;
+
+/**
+ * Server-wide supply of a trade: how many purchases all traders together may serve,
+ * and how often that supply is refilled. A limit of zero means unlimited.
+ */
+public final class TradeStock {
+
+    public static final TradeStock UNLIMITED = new TradeStock(0, 0);
+
+    private final int limit;
+    private final int restockMinutes;
+
+    private TradeStock(int limit, int restockMinutes) {
+        this.limit = limit;
+        this.restockMinutes = restockMinutes;
+    }
+
+    public static TradeStock of(int limit, int restockMinutes) {
+        if (limit <= 0) {
+            return UNLIMITED;
+        }
+        return new TradeStock(limit, Math.max(0, restockMinutes));
+    }
+
+    public boolean isLimited() {
+        return limit > 0;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return Minutes between refills, or 0 if the stock never refills on its own
+     */
+    public int getRestockMinutes() {
+        return restockMinutes;
+    }
+
+    @Override
+    public String toString() {
+        return "TradeStock{" +
+                "limit=" + limit +
+                ", restockMinutes=" + restockMinutes +
+                '}';
+    }
+}
@@ -0,0 +1,331 @@
+package su.brim.model;
+
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.MerchantRecipe;
+import org.bukkit.inventory.meta.EnchantmentStorageMeta;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, column-packed storage for a set of trades.
+ * Every field lives in a primitive or reference array indexed by trade position, and
+ * {@link Trade} instances are thin views over one row, so a large catalog costs a handful
+ * of arrays instead of a graph of maps and boxed values per trade.
+ */
+public final class TradeTable {
+
+    private static final Material[] MATERIALS = Material.values();
+    private static final short NO_MATERIAL = -1;
+
+    final String[] ids;
+    final short[] resultMaterials;
+    final int[] resultAmounts;
+    final short[] costMaterials;
+    final int[] costAmounts;
+    final short[] secondCostMaterials;
+    final int[] secondCostAmounts;
+    final int[] maxUses;
+    final int[] weights;
+    final boolean[] enabled;
+    final TradeContext[] contexts;
+    final int[] stockLimits;
+    final int[] stockRestockMinutes;
+    final int[] restockMinutes;
+    final int[] priceFloors;
+    final int[] priceCeilings;
+    final double[] priceSteps;
+    final double[] priceDecays;
+
+    // Enchantments of row i are at [enchantmentStarts[i], enchantmentStarts[i + 1])
+    final int[] enchantmentStarts;
+    final Enchantment[] enchantments;
+    final int[] enchantmentLevels;
+
+    // Prototypes built once at load, never handed out without cloning
+    final ItemStack[] resultPrototypes;
+    final List<List<ItemStack>> ingredientPrototypes;
+
+    private final List<Trade> views;
+    // Built on the first purchase lookup; immutable once built, so a racy double build is harmless
+    private volatile Map<ItemStack, List<Trade>> byResult;
+
+    private TradeTable(List<Row> rows) {
+        int size = rows.size();
+        this.ids = new String[size];
+        this.resultMaterials = new short[size];
+        this.resultAmounts = new int[size];
+        this.costMaterials = new short[size];
+        this.costAmounts = new int[size];
+        this.secondCostMaterials = new short[size];
+        this.secondCostAmounts = new int[size];
+        this.maxUses = new int[size];
+        this.weights = new int[size];
+        this.enabled = new boolean[size];
+        this.contexts = new TradeContext[size];
+        this.stockLimits = new int[size];
+        this.stockRestockMinutes = new int[size];
+        this.restockMinutes = new int[size];
+        this.priceFloors = new int[size];
+        this.priceCeilings = new int[size];
+        this.priceSteps = new double[size];
+        this.priceDecays = new double[size];
+        this.enchantmentStarts = new int[size + 1];
+
+        int enchantmentCount = 0;
+        for (Row row : rows) {
+            enchantmentCount += row.enchantments().size();
+        }
+        this.enchantments = new Enchantment[enchantmentCount];
+        this.enchantmentLevels = new int[enchantmentCount];
+        this.resultPrototypes = new ItemStack[size];
+
+        List<List<ItemStack>> ingredients = new ArrayList<>(size);
+        Trade[] rowViews = new Trade[size];
+        int enchantment = 0;
+        for (int i = 0; i < size; i++) {
+            Row row = rows.get(i);
+            ids[i] = row.id();
+            resultMaterials[i] = (short) row.resultMaterial().ordinal();
+            resultAmounts[i] = row.resultAmount();
+            costMaterials[i] = (short) row.costMaterial().ordinal();
+            costAmounts[i] = row.costAmount();
+            secondCostMaterials[i] = row.secondCostMaterial() != null
+                    ? (short) row.secondCostMaterial().ordinal() : NO_MATERIAL;
+            secondCostAmounts[i] = row.secondCostAmount();
+            maxUses[i] = row.maxUses();
+            weights[i] = row.weight();
+            enabled[i] = row.enabled();
+            contexts[i] = row.context() != null ? row.context() : TradeContext.ANYWHERE;
+            stockLimits[i] = row.stock().getLimit();
+            stockRestockMinutes[i] = row.stock().getRestockMinutes();
+            restockMinutes[i] = row.restockMinutes();
+            priceFloors[i] = row.pricing().getFloor();
+            priceCeilings[i] = row.pricing().getCeiling();
+            priceSteps[i] = row.pricing().getStep();
+            priceDecays[i] = row.pricing().getDecay();
+
+            enchantmentStarts[i] = enchantment;
+            for (Map.Entry<Enchantment, Integer> entry : row.enchantments().entrySet()) {
+                enchantments[enchantment] = entry.getKey();
+                enchantmentLevels[enchantment] = entry.getValue();
+                enchantment++;
+            }
+        }
+        enchantmentStarts[size] = enchantment;
+
+        for (int i = 0; i < size; i++) {
+            // Rows copied from another table keep its prototypes, they depend on the copied fields only
+            Trade source = rows.get(i).source();
+            resultPrototypes[i] = source != null ? source.table.resultPrototypes[source.index] : createResult(i);
+            ingredients.add(source != null ? source.table.ingredientPrototypes.get(source.index) : createIngredients(i));
+            rowViews[i] = new Trade(this, i);
+        }
+        this.ingredientPrototypes = List.copyOf(ingredients);
+        this.views = List.of(rowViews);
+    }
+
+    /**
+     * Packs existing trades, possibly from different tables, into a new table in the same order.
+     */
+    public static TradeTable copyOf(List<Trade> trades) {
+        Builder builder = new Builder(trades.size());
+        for (Trade trade : trades) {
+            builder.add(trade);
+        }
+        return builder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder(16);
+    }
+
+    /**
+     * @return Views over every row, in row order. Never copied, safe to share.
+     */
+    public List<Trade> asList() {
+        return views;
+    }
+
+    public Trade get(int index) {
+        return views.get(index);
+    }
+
+    /**
+     * @return Row of the trade in this table, or -1 if it is a view over another table
+     */
+    public int indexOf(Trade trade) {
+        return trade.table == this ? trade.index : -1;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Finds the trade a merchant recipe was built from.
+     * Matches on the result item and on ingredient types, but not amounts, since ingredient amounts
+     * may have been adjusted after the recipe was built. A vanilla recipe selling the same item for
+     * the same ingredients is indistinguishable, so prefer the offers tagged on the trader where known.
+     * @return The matching trade, or null if the recipe did not come from this table
+     */
+    public Trade findByRecipe(MerchantRecipe recipe) {
+        Map<ItemStack, List<Trade>> index = byResult;
+        if (index == null) {
+            index = new HashMap<>(size() * 2);
+            for (int i = 0; i < size(); i++) {
+                index.computeIfAbsent(resultPrototypes[i], key -> new ArrayList<>(1)).add(views.get(i));
+            }
+            byResult = index;
+        }
+
+        List<Trade> candidates = index.get(recipe.getResult());
+        if (candidates == null) {
+            return null;
+        }
+        List<ItemStack> ingredients = recipe.getIngredients();
+        for (Trade candidate : candidates) {
+            List<ItemStack> expected = ingredientPrototypes.get(candidate.index);
+            if (sameTypes(expected, ingredients)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if both ingredient lists hold the same item types in the same order, whatever the amounts
+     */
+    public static boolean sameTypes(List<ItemStack> expected, List<ItemStack> actual) {
+        if (expected.size() != actual.size()) {
+            return false;
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (actual.get(i) == null || expected.get(i).getType() != actual.get(i).getType()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static Material material(short ordinal) {
+        return ordinal != NO_MATERIAL ? MATERIALS[ordinal] : null;
+    }
+
+    private ItemStack createResult(int row) {
+        Material material = material(resultMaterials[row]);
+        ItemStack result = new ItemStack(material, resultAmounts[row]);
+
+        // Handle enchanted books
+        int from = enchantmentStarts[row];
+        int to = enchantmentStarts[row + 1];
+        if (material == Material.ENCHANTED_BOOK && to > from) {
+            EnchantmentStorageMeta meta = (EnchantmentStorageMeta) result.getItemMeta();
+            if (meta != null) {
+                for (int e = from; e < to; e++) {
+                    meta.addStoredEnchant(enchantments[e], enchantmentLevels[e], true);
+                }
+                result.setItemMeta(meta);
+            }
+        }
+
+        return result;
+    }
+
+    private List<ItemStack> createIngredients(int row) {
+        ItemStack primary = new ItemStack(material(costMaterials[row]), costAmounts[row]);
+
+        // Add secondary cost if present
+        if (secondCostMaterials[row] != NO_MATERIAL && secondCostAmounts[row] > 0) {
+            return List.of(primary, new ItemStack(material(secondCostMaterials[row]), secondCostAmounts[row]));
+        }
+
+        return List.of(primary);
+    }
+
+    /**
+     * Collects trades row by row. Rows are only packed into arrays on {@link #build()}.
+     */
+    public static final class Builder {
+
+        private final List<Row> rows;
+
+        private Builder(int capacity) {
+            this.rows = new ArrayList<>(capacity);
+        }
+
+        public Builder add(String id, Material resultMaterial, int resultAmount,
+                           Material costMaterial, int costAmount,
+                           Material secondCostMaterial, int secondCostAmount,
+                           int maxUses, int weight, boolean enabled,
+                           Map<Enchantment, Integer> enchantments, TradeContext context) {
+            return add(id, resultMaterial, resultAmount,
+                    costMaterial, costAmount,
+                    secondCostMaterial, secondCostAmount,
+                    maxUses, weight, enabled, enchantments, context,
+                    TradeStock.UNLIMITED, TradePricing.STATIC);
+        }
+
+        public Builder add(String id, Material resultMaterial, int resultAmount,
+                           Material costMaterial, int costAmount,
+                           Material secondCostMaterial, int secondCostAmount,
+                           int maxUses, int weight, boolean enabled,
+                           Map<Enchantment, Integer> enchantments, TradeContext context,
+                           TradeStock stock, TradePricing pricing) {
+            return add(id, resultMaterial, resultAmount,
+                    costMaterial, costAmount,
+                    secondCostMaterial, secondCostAmount,
+                    maxUses, weight, enabled, enchantments, context,
+                    stock, pricing, 0);
+        }
+
+        public Builder add(String id, Material resultMaterial, int resultAmount,
+                           Material costMaterial, int costAmount,
+                           Material secondCostMaterial, int secondCostAmount,
+                           int maxUses, int weight, boolean enabled,
+                           Map<Enchantment, Integer> enchantments, TradeContext context,
+                           TradeStock stock, TradePricing pricing, int restockMinutes) {
+            rows.add(new Row(id, resultMaterial, resultAmount,
+                    costMaterial, costAmount,
+                    secondCostMaterial, secondCostAmount,
+                    maxUses, weight, enabled,
+                    enchantments != null ? enchantments : Map.of(), context,
+                    stock != null ? stock : TradeStock.UNLIMITED,
+                    pricing != null ? pricing : TradePricing.STATIC, Math.max(0, restockMinutes), null));
+            return this;
+        }
+
+        /**
+         * Copies a trade from another table, reusing its item prototypes instead of building new ones.
+         */
+        public Builder add(Trade trade) {
+            rows.add(new Row(trade.getId(), trade.getResultMaterial(), trade.getResultAmount(),
+                    trade.getCostMaterial(), trade.getCostAmount(),
+                    trade.getSecondCostMaterial(), trade.getSecondCostAmount(),
+                    trade.getMaxUses(), trade.getWeight(), trade.isEnabled(),
+                    trade.getEnchantments(), trade.getContext(), trade.getStock(), trade.getPricing(),
+                    trade.getRestockMinutes(), trade));
+            return this;
+        }
+
+        public int size() {
+            return rows.size();
+        }
+
+        public TradeTable build() {
+            return new TradeTable(rows);
+        }
+    }
+
+    private record Row(String id, Material resultMaterial, int resultAmount,
+                       Material costMaterial, int costAmount,
+                       Material secondCostMaterial, int secondCostAmount,
+                       int maxUses, int weight, boolean enabled,
+                       Map<Enchantment, Integer> enchantments, TradeContext context,
+                       TradeStock stock, TradePricing pricing, int restockMinutes, Trade source) {
+    }
+}
@@ -0,0 +1,155 @@
+package su.brim.pricing;
+
+import su.brim.WanderingTraderPlugin;
+import su.brim.config.TradeCatalog;
+import su.brim.model.Trade;
+import su.brim.model.TradePricing;
+import su.brim.model.TradeTable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Demand-driven prices for trades with a {@code dynamic-price} section.
+ * Region threads only enqueue the purchased trade; a single async task drains the queue
+ * in batches, does all the math and publishes an immutable {@link PriceTable} with one
+ * volatile write, which recipe building reads without locking.
+ */
+public class DynamicPricing {
+
+    private final WanderingTraderPlugin plugin;
+    private final boolean enabled;
+    private final long intervalSeconds;
+
+    // Lock-free multi-producer queue, drained by the aggregation task only
+    private final Queue<Trade> purchases = new ConcurrentLinkedQueue<>();
+    private volatile PriceTable prices = PriceTable.EMPTY;
+
+    // Owned by the aggregation task, never touched by other threads
+    private TradeTable table;
+    private double[] currentPrices = new double[0];
+    private long lastUpdate = System.nanoTime();
+
+    public DynamicPricing(WanderingTraderPlugin plugin) {
+        this.plugin = plugin;
+        this.enabled = plugin.getConfig().getBoolean("pricing.enabled", false);
+        this.intervalSeconds = Math.max(1, plugin.getConfig().getLong("pricing.update-interval-seconds", 10));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts the async task aggregating purchases into prices.
+     */
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        plugin.getServer().getAsyncScheduler().runAtFixedRate(plugin, task -> update(),
+                0, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records a completed purchase. Safe from any thread, costs a single enqueue.
+     */
+    public void recordPurchase(Trade trade) {
+        if (enabled && trade.hasDynamicPrice()) {
+            purchases.offer(trade);
+        }
+    }
+
+    /**
+     * @return Current primary cost of the trade, the configured amount if its price is static
+     */
+    public int getCost(Trade trade) {
+        return prices.getCost(trade);
+    }
+
+    private void update() {
+        TradeCatalog catalog = plugin.getTradeConfig().getCatalog();
+        if (catalog.getTable() != table) {
+            remap(catalog.getTable());
+        }
+
+        int[] counts = new int[table.size()];
+        Map<String, Integer> rows = null;
+        for (Trade trade; (trade = purchases.poll()) != null; ) {
+            int row = table.indexOf(trade);
+            if (row < 0) {
+                // Bought from a recipe rolled before the last reload
+                if (rows == null) {
+                    rows = rowsById(table);
+                }
+                row = rows.getOrDefault(trade.getId(), -1);
+            }
+            if (row >= 0) {
+                counts[row]++;
+            }
+        }
+
+        long now = System.nanoTime();
+        double minutes = (now - lastUpdate) / 60_000_000_000.0;
+        lastUpdate = now;
+
+        int[] costs = prices.costs().clone();
+        boolean changed = false;
+        for (int row = 0; row < costs.length; row++) {
+            Trade trade = table.get(row);
+            if (!trade.hasDynamicPrice()) {
+                continue;
+            }
+            TradePricing pricing = trade.getPricing();
+            double price = currentPrices[row] + pricing.getStep() * trade.getCostAmount() * counts[row];
+            price = Math.min(pricing.getCeiling(), price);
+            price = pricing.getFloor() + (price - pricing.getFloor()) * Math.pow(1 - pricing.getDecay(), minutes);
+            currentPrices[row] = price;
+
+            int cost = (int) Math.max(pricing.getFloor(), Math.min(pricing.getCeiling(), Math.round(price)));
+            if (cost != costs[row]) {
+                costs[row] = cost;
+                changed = true;
+            }
+        }
+        if (changed) {
+            prices = new PriceTable(table, costs);
+        }
+    }
+
+    /**
+     * Carries prices over to a reloaded catalog by trade id. New trades start at their configured cost.
+     */
+    private void remap(TradeTable next) {
+        Map<String, Integer> previous = table != null ? rowsById(table) : Map.of();
+        double[] nextPrices = new double[next.size()];
+        int[] costs = new int[next.size()];
+        for (int row = 0; row < next.size(); row++) {
+            Trade trade = next.get(row);
+            costs[row] = trade.getCostAmount();
+            if (!trade.hasDynamicPrice()) {
+                continue;
+            }
+            TradePricing pricing = trade.getPricing();
+            Integer old = previous.get(trade.getId());
+            double price = old != null && old < currentPrices.length && currentPrices[old] > 0
+                    ? currentPrices[old] : trade.getCostAmount();
+            nextPrices[row] = Math.max(pricing.getFloor(), Math.min(pricing.getCeiling(), price));
+            costs[row] = (int) Math.round(nextPrices[row]);
+        }
+        table = next;
+        currentPrices = nextPrices;
+        prices = new PriceTable(next, costs);
+    }
+
+    private static Map<String, Integer> rowsById(TradeTable table) {
+        Map<String, Integer> rows = new HashMap<>(table.size() * 2);
+        for (int row = 0; row < table.size(); row++) {
+            rows.put(table.get(row).getId(), row);
+        }
+        return rows;
+    }
+}
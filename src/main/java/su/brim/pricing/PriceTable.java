@@ -0,0 +1,23 @@
+package su.brim.pricing;
+
+import su.brim.model.Trade;
+import su.brim.model.TradeTable;
+
+/**
+ * Immutable primary costs of every trade of one catalog table, by row.
+ * Replaced as a whole on every price update, never modified after publishing.
+ */
+record PriceTable(TradeTable table, int[] costs) {
+
+    static final PriceTable EMPTY = new PriceTable(null, new int[0]);
+
+    int getCost(Trade trade) {
+        if (table != null) {
+            int row = table.indexOf(trade);
+            if (row >= 0) {
+                return costs[row];
+            }
+        }
+        return trade.getCostAmount();
+    }
+}
@@ -0,0 +1,38 @@
+package su.brim.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.Server;
+
+/**
+ * Per-region time budget for background work, reset every tick.
+ * Folia exposes no region identity, so the budget is kept per 16x16 chunk region section
+ * and server tick; a region spanning several sections may spend the budget once per section.
+ */
+public class RegionBudget {
+
+    private final long budgetNanos;
+    private final RegionTickCounter spent;
+
+    /**
+     * @param budgetNanos Time each region section may spend per tick
+     */
+    public RegionBudget(Server server, long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+        this.spent = new RegionTickCounter(server);
+    }
+
+    /**
+     * @return true if the section around the location still has time left in the current tick
+     */
+    public boolean hasBudget(Location location) {
+        return spent.get(RegionSection.of(location)) < budgetNanos;
+    }
+
+    /**
+     * Charges work done at the location against its section's current tick.
+     * Must be called from the region owning the location.
+     */
+    public void charge(Location location, long nanos) {
+        spent.add(RegionSection.of(location), location.getWorld(), nanos);
+    }
+}
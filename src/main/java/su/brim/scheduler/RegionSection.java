@@ -0,0 +1,35 @@
+package su.brim.scheduler;
+
+import org.bukkit.Location;
+
+import java.util.UUID;
+
+/**
+ * A 16x16 chunk region section, the unit Folia builds regions from.
+ * A section always belongs to exactly one region, so per-section state is only touched by one thread at a time.
+ */
+record RegionSection(UUID world, int x, int z) {
+
+    // Blocks to chunks, then chunks to Folia's default 16x16 chunk region sections
+    private static final int CHUNK_SHIFT = 4;
+    private static final int SECTION_SHIFT = CHUNK_SHIFT + 4;
+
+    static RegionSection of(Location location) {
+        return new RegionSection(location.getWorld().getUID(),
+                location.getBlockX() >> SECTION_SHIFT, location.getBlockZ() >> SECTION_SHIFT);
+    }
+
+    /**
+     * @return X of the section's first chunk
+     */
+    int chunkX() {
+        return x << (SECTION_SHIFT - CHUNK_SHIFT);
+    }
+
+    /**
+     * @return Z of the section's first chunk
+     */
+    int chunkZ() {
+        return z << (SECTION_SHIFT - CHUNK_SHIFT);
+    }
+}
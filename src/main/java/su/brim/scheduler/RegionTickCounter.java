@@ -0,0 +1,68 @@
+package su.brim.scheduler;
+
+import org.bukkit.Server;
+import org.bukkit.World;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counters per region section that start over every server tick.
+ * Folia gives plugins no handle on a region, so per-region limits are kept per section instead;
+ * a region is never split below a section, so every counter is only advanced by the region owning it.
+ * Whenever the map has doubled since the last pass, the calling region prunes the idle sections it owns.
+ * Other regions' counters are never touched, so a count can't be lost mid-tick.
+ */
+final class RegionTickCounter {
+
+    private static final int MIN_PRUNE_SIZE = 64;
+
+    private final Server server;
+    private final Map<RegionSection, Counter> counters = new ConcurrentHashMap<>();
+    private final AtomicInteger pruneAt = new AtomicInteger(MIN_PRUNE_SIZE);
+
+    RegionTickCounter(Server server) {
+        this.server = server;
+    }
+
+    /**
+     * @return What was added for the section during the current tick
+     */
+    long get(RegionSection section) {
+        Counter counter = counters.get(section);
+        return counter != null && counter.tick == server.getCurrentTick() ? counter.count : 0L;
+    }
+
+    /**
+     * Adds to the section's count for the current tick. Must be called from the region owning the section.
+     */
+    void add(RegionSection section, World world, long amount) {
+        long tick = server.getCurrentTick();
+        Counter counter = counters.computeIfAbsent(section, key -> new Counter(world, tick));
+        if (counter.tick != tick) {
+            counter.tick = tick;
+            counter.count = 0L;
+        }
+        counter.count += amount;
+
+        if (counters.size() > pruneAt.get()) {
+            counters.entrySet().removeIf(entry -> entry.getValue().tick < tick - 1
+                    && server.isOwnedByCurrentRegion(entry.getValue().world,
+                            entry.getKey().chunkX(), entry.getKey().chunkZ()));
+            pruneAt.set(Math.max(MIN_PRUNE_SIZE, counters.size() * 2));
+        }
+    }
+
+    // Only read and written by the region owning the section
+    private static final class Counter {
+        final World world;
+        long tick;
+        long count;
+
+        Counter(World world, long tick) {
+            this.world = world;
+            this.tick = tick;
+        }
+    }
+}
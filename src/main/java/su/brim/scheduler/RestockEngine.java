@@ -0,0 +1,230 @@
+package su.brim.scheduler;
+
+import su.brim.WanderingTraderPlugin;
+import su.brim.config.TradeCatalog;
+import su.brim.metrics.TradeMetrics;
+import su.brim.model.Trade;
+import su.brim.util.TimingWheel;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.WanderingTrader;
+import org.bukkit.inventory.MerchantRecipe;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Periodic restocking of custom offers of trades with a {@code restock-minutes} interval.
+ * Instead of a task per trader, each region section keeps one timing wheel of the traders in it,
+ * advanced by a single region task, so the scheduling cost stays flat with many live traders.
+ * The wheels hold traders weakly; a trader that unloads is dropped, and catches up from the
+ * last restock time stored on it once its chunk loads again.
+ * Each trade restocks on its own interval, shifted per trader so restocks are spread out.
+ */
+public class RestockEngine {
+
+    // Wheel resolution; intervals are whole minutes, so one slot per second is plenty
+    private static final long SLOT_MILLIS = 1000L;
+    private static final long TICKS_PER_SLOT = 20L;
+    private static final int WHEEL_SLOTS = 512;
+
+    private final WanderingTraderPlugin plugin;
+    private final TradeMetrics metrics;
+
+    // Position of the first custom recipe, then the content hashes of the trades behind the custom offers
+    private final NamespacedKey offersKey;
+    // When the offers were last checked for restocking, in epoch millis
+    private final NamespacedKey restockedKey;
+
+    // Each wheel is only touched from the region owning its section
+    private final Map<RegionSection, Wheel> wheels = new ConcurrentHashMap<>();
+    private final AtomicInteger scheduled = new AtomicInteger();
+
+    public RestockEngine(WanderingTraderPlugin plugin) {
+        this.plugin = plugin;
+        this.metrics = plugin.getMetrics();
+        this.offersKey = new NamespacedKey(plugin, "restock_trades");
+        this.restockedKey = new NamespacedKey(plugin, "restocked_at");
+    }
+
+    /**
+     * Starts restocking a trader's freshly set custom offers, or stops it if none of them restock.
+     * Must be called from the trader's region thread.
+     * @param firstRecipe Position of the first custom recipe among the trader's recipes
+     */
+    public void track(WanderingTrader trader, TradeCatalog catalog, List<Trade> offers, int firstRecipe) {
+        PersistentDataContainer data = trader.getPersistentDataContainer();
+        int[] encoded = new int[offers.size() + 1];
+        encoded[0] = firstRecipe;
+        boolean restocks = false;
+        for (int i = 0; i < offers.size(); i++) {
+            Trade trade = offers.get(i);
+            encoded[i + 1] = trade.contentHash();
+            restocks |= trade.hasRestock();
+        }
+        if (!restocks) {
+            if (data.has(offersKey)) {
+                data.remove(offersKey);
+                data.remove(restockedKey);
+            }
+            return;
+        }
+
+        long stamp = nextStamp(data, System.currentTimeMillis());
+        data.set(offersKey, PersistentDataType.INTEGER_ARRAY, encoded);
+        data.set(restockedKey, PersistentDataType.LONG, stamp);
+        schedule(trader, nextDue(trader.getUniqueId(), catalog, encoded, stamp), stamp);
+    }
+
+    /**
+     * Restocks whatever came due while a trader was unloaded and schedules its next restock.
+     * Must be called from the trader's region thread, e.g. when its chunk loads.
+     */
+    public void resume(WanderingTrader trader) {
+        restock(trader, 0L);
+    }
+
+    /**
+     * @return Traders waiting in a wheel for their next restock
+     */
+    public int getScheduledCount() {
+        return scheduled.get();
+    }
+
+    /**
+     * Resets the uses of every offer whose interval passed since the last check.
+     * Several missed intervals restock an offer once, as its uses can only be reset once.
+     * Offers are matched to the current catalog by content, so they keep restocking across reloads
+     * that leave their trade as it was, with the current restock interval.
+     * @param expected Restock time the caller was scheduled for, or 0 to always run;
+     *                 a mismatch means the trader was tracked again since and this run is stale
+     */
+    private void restock(WanderingTrader trader, long expected) {
+        if (!trader.isValid()) {
+            return;
+        }
+        PersistentDataContainer data = trader.getPersistentDataContainer();
+        int[] encoded = data.get(offersKey, PersistentDataType.INTEGER_ARRAY);
+        Long last = data.get(restockedKey, PersistentDataType.LONG);
+        if (encoded == null || last == null || expected != 0L && last != expected) {
+            return;
+        }
+        TradeCatalog catalog = plugin.getTradeConfig().getCatalog();
+        long now = System.currentTimeMillis();
+        long phase = phase(trader.getUniqueId());
+        int recipeCount = trader.getRecipeCount();
+        for (int i = 1; i < encoded.length; i++) {
+            // Null once the trade was changed or removed
+            Trade trade = catalog.findByContentHash(encoded[i]);
+            int recipeIndex = encoded[0] + i - 1;
+            if (trade == null || !trade.hasRestock() || recipeIndex >= recipeCount) {
+                continue;
+            }
+            long interval = trade.getRestockMinutes() * 60_000L;
+            if (Math.floorDiv(now + phase, interval) == Math.floorDiv(last + phase, interval)) {
+                continue;
+            }
+            MerchantRecipe recipe = trader.getRecipe(recipeIndex);
+            // Skip recipes replaced by something else since the offers were set
+            if (recipe.getUses() > 0 && recipe.getResult().getType() == trade.getResultMaterial()) {
+                recipe.setUses(0);
+                trader.setRecipe(recipeIndex, recipe);
+                metrics.recordRestock();
+            }
+        }
+
+        long stamp = nextStamp(data, now);
+        data.set(restockedKey, PersistentDataType.LONG, stamp);
+        schedule(trader, nextDue(trader.getUniqueId(), catalog, encoded, stamp), stamp);
+    }
+
+    /**
+     * @return Earliest time after {@code from} at which one of the offers restocks, or -1 if none does
+     */
+    private static long nextDue(UUID trader, TradeCatalog catalog, int[] encoded, long from) {
+        long phase = phase(trader);
+        long next = Long.MAX_VALUE;
+        for (int i = 1; i < encoded.length; i++) {
+            Trade trade = catalog.findByContentHash(encoded[i]);
+            if (trade == null || !trade.hasRestock()) {
+                continue;
+            }
+            long interval = trade.getRestockMinutes() * 60_000L;
+            next = Math.min(next, (Math.floorDiv(from + phase, interval) + 1) * interval - phase);
+        }
+        return next == Long.MAX_VALUE ? -1L : next;
+    }
+
+    // Per-trader offset of all restock boundaries, so traders spawned together don't restock together
+    private static long phase(UUID trader) {
+        return Math.floorMod(trader.getLeastSignificantBits(), 24L * 60 * 60_000L);
+    }
+
+    // Strictly increasing per trader, so every tracking produces a distinct stamp
+    private long nextStamp(PersistentDataContainer data, long now) {
+        Long last = data.get(restockedKey, PersistentDataType.LONG);
+        return last != null && last >= now ? last + 1 : now;
+    }
+
+    private void schedule(WanderingTrader trader, long due, long stamp) {
+        if (due < 0) {
+            return;
+        }
+        Location location = trader.getLocation();
+        RegionSection section = RegionSection.of(location);
+        Wheel wheel = wheels.get(section);
+        if (wheel == null || wheel.task().isCancelled()) {
+            if (wheel != null) {
+                // Its task was cancelled from outside, e.g. on disable; its traders catch up once their chunk loads
+                scheduled.addAndGet(-wheel.timers().size());
+            }
+            TimingWheel<Pending> timers = new TimingWheel<>(WHEEL_SLOTS, System.currentTimeMillis() / SLOT_MILLIS);
+            ScheduledTask task = plugin.getServer().getRegionScheduler().runAtFixedRate(plugin, location.getWorld(),
+                    location.getBlockX() >> 4, location.getBlockZ() >> 4,
+                    scheduledTask -> advance(scheduledTask, section, timers), TICKS_PER_SLOT, TICKS_PER_SLOT);
+            wheel = new Wheel(timers, task);
+            wheels.put(section, wheel);
+        }
+        // Rounded up, a restock never runs before its boundary
+        wheel.timers().schedule(new Pending(new WeakReference<>(trader), stamp), (due + SLOT_MILLIS - 1) / SLOT_MILLIS);
+        scheduled.incrementAndGet();
+    }
+
+    /**
+     * Restocks the traders of one section that came due. Stops for good once the wheel is empty;
+     * a later restock in the section starts a new one.
+     */
+    private void advance(ScheduledTask task, RegionSection section, TimingWheel<Pending> timers) {
+        timers.advance(System.currentTimeMillis() / SLOT_MILLIS, pending -> {
+            scheduled.decrementAndGet();
+            WanderingTrader trader = pending.trader().get();
+            if (trader == null) {
+                return;
+            }
+            if (Bukkit.isOwnedByCurrentRegion(trader)) {
+                restock(trader, pending.stamp());
+            } else {
+                // Wandered off into another region; returns null and drops the restock if it was removed
+                trader.getScheduler().run(plugin, scheduledTask -> restock(trader, pending.stamp()), null);
+            }
+        });
+        if (timers.isEmpty()) {
+            wheels.computeIfPresent(section, (key, wheel) -> wheel.timers() == timers ? null : wheel);
+            task.cancel();
+        }
+    }
+
+    private record Wheel(TimingWheel<Pending> timers, ScheduledTask task) {
+    }
+
+    private record Pending(WeakReference<WanderingTrader> trader, long stamp) {
+    }
+}
@@ -0,0 +1,159 @@
+package su.brim.scheduler;
+
+import su.brim.WanderingTraderPlugin;
+import su.brim.listener.TradeApplier;
+import su.brim.metrics.TradeMetrics;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.WanderingTrader;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-region admission control for applying trades to spawned traders.
+ * Each region section admits a limited number of traders per server tick, as Folia exposes no
+ * region identity; the excess waits in a FIFO backlog per section, drained on that section's
+ * region as later ticks leave room.
+ * A trader spawning next to a backlog queues behind it, so traders are applied in spawn order.
+ * Repeat spawn events for one trader never get here, they are coalesced by the claim marker.
+ */
+public class SpawnAdmission {
+
+    private final WanderingTraderPlugin plugin;
+    private final TradeApplier applier;
+    private final TradeMetrics metrics;
+    private final int maxPerTick;
+
+    // Admissions per region section in the current tick, like RegionBudget
+    private final RegionTickCounter admitted;
+    private final Map<RegionSection, Backlog> backlogs = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger peakQueued = new AtomicInteger();
+    private final LongAdder deferred = new LongAdder();
+
+    public SpawnAdmission(WanderingTraderPlugin plugin, TradeApplier applier) {
+        this.plugin = plugin;
+        this.applier = applier;
+        this.metrics = plugin.getMetrics();
+        this.maxPerTick = Math.max(0, plugin.getConfig().getInt("admission.max-per-tick", 16));
+        this.admitted = new RegionTickCounter(plugin.getServer());
+    }
+
+    public boolean isEnabled() {
+        return maxPerTick > 0;
+    }
+
+    /**
+     * Applies trades to a freshly claimed trader on a later tick, right away if its region has room
+     * and otherwise once the traders queued before it are done.
+     * Must be called from the trader's region thread.
+     */
+    public void submit(WanderingTrader trader) {
+        long spawnedAt = System.nanoTime();
+        if (maxPerTick <= 0) {
+            schedule(trader, spawnedAt);
+            return;
+        }
+
+        Location location = trader.getLocation();
+        RegionSection section = RegionSection.of(location);
+        if (!backlogs.containsKey(section) && hasRoom(section)) {
+            admit(section, location.getWorld());
+            schedule(trader, spawnedAt);
+            return;
+        }
+        defer(section, location, new Deferred(trader, spawnedAt));
+    }
+
+    /**
+     * @return Traders currently waiting for admission
+     */
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * @return Most traders waiting at once since startup
+     */
+    public int getPeakQueuedCount() {
+        return peakQueued.get();
+    }
+
+    /**
+     * @return Traders that had to wait for a later tick since startup
+     */
+    public long getDeferredCount() {
+        return deferred.sum();
+    }
+
+    private void defer(RegionSection section, Location location, Deferred entry) {
+        deferred.increment();
+        peakQueued.accumulateAndGet(queued.incrementAndGet(), Math::max);
+
+        // Added under the map's lock, so a drain retiring the backlog can't lose the entry
+        Backlog backlog = backlogs.compute(section, (key, current) -> {
+            Backlog next = current != null ? current : new Backlog();
+            next.entries.add(entry);
+            return next;
+        });
+        if (backlog.started.compareAndSet(false, true)) {
+            plugin.getServer().getRegionScheduler().runAtFixedRate(plugin, location.getWorld(),
+                    location.getBlockX() >> 4, location.getBlockZ() >> 4,
+                    task -> drain(task, section, location.getWorld(), backlog), 1L, 1L);
+        }
+    }
+
+    /**
+     * Admits queued traders of one section while the section has room this tick.
+     * Stops for good once the backlog is empty; a later overflow starts a new one.
+     */
+    private void drain(ScheduledTask task, RegionSection section, World world, Backlog backlog) {
+        while (hasRoom(section)) {
+            Deferred next = backlog.entries.poll();
+            if (next == null) {
+                // Retire the backlog unless a trader was queued since the poll
+                if (backlogs.computeIfPresent(section,
+                        (key, current) -> current == backlog && current.entries.isEmpty() ? null : current) != backlog) {
+                    task.cancel();
+                    return;
+                }
+                continue;
+            }
+            queued.decrementAndGet();
+            admit(section, world);
+            schedule(next.trader(), next.spawnedAt());
+        }
+    }
+
+    private void schedule(WanderingTrader trader, long spawnedAt) {
+        // Use Folia's EntityScheduler to ensure we're on the correct thread
+        // The entity scheduler runs the task on the region that owns this entity
+        trader.getScheduler().run(plugin, scheduledTask -> {
+            metrics.recordSpawnToApply(System.nanoTime() - spawnedAt);
+            applier.applyClaimed(trader);
+        }, () -> applier.releaseClaim(trader));
+    }
+
+    private boolean hasRoom(RegionSection section) {
+        return admitted.get(section) < maxPerTick;
+    }
+
+    private void admit(RegionSection section, World world) {
+        admitted.add(section, world, 1L);
+    }
+
+    private record Deferred(WanderingTrader trader, long spawnedAt) {
+    }
+
+    private static final class Backlog {
+        final Queue<Deferred> entries = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean started = new AtomicBoolean();
+    }
+}
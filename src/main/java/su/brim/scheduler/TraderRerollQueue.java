@@ -0,0 +1,117 @@
+package su.brim.scheduler;
+
+import su.brim.WanderingTraderPlugin;
+import su.brim.listener.TradeApplier;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.WanderingTrader;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background re-roll of traders whose offers were rolled from an older catalog.
+ * Traders are queued from chunk loads and reload sweeps, handed to their own region a few per tick,
+ * and only re-rolled while that region has budget left, so a reload never causes a tick spike.
+ */
+public class TraderRerollQueue {
+
+    private final WanderingTraderPlugin plugin;
+    private final TradeApplier applier;
+    private final RegionBudget budget;
+    private final boolean enabled;
+    private final int dispatchPerTick;
+    private final double sweepRadius;
+    
+    private final Queue<WanderingTrader> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    public TraderRerollQueue(WanderingTraderPlugin plugin, TradeApplier applier) {
+        this.plugin = plugin;
+        this.applier = applier;
+        this.enabled = plugin.getConfig().getBoolean("reroll.enabled", true);
+        this.budget = new RegionBudget(plugin.getServer(),
+                plugin.getConfig().getLong("reroll.budget-micros-per-tick", 1000L) * 1000L);
+        this.dispatchPerTick = Math.max(1, plugin.getConfig().getInt("reroll.dispatch-per-tick", 16));
+        this.sweepRadius = plugin.getConfig().getDouble("reroll.sweep-radius", 128.0);
+    }
+
+    /**
+     * Starts handing queued traders to their regions, once per tick.
+     */
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(plugin, task -> dispatch(), 1L, 1L);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a trader for re-roll. Safe to call from any thread.
+     */
+    public void enqueue(WanderingTrader trader) {
+        if (!enabled) {
+            return;
+        }
+        pending.add(trader);
+        pendingCount.incrementAndGet();
+    }
+
+    /**
+     * Queues stale traders near every online player. Each search runs on the player's own region.
+     * Traders away from players are picked up when their chunk loads or a player opens them.
+     */
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            player.getScheduler().run(plugin, task -> {
+                for (Entity entity : player.getNearbyEntities(sweepRadius, sweepRadius, sweepRadius)) {
+                    if (entity instanceof WanderingTrader trader && applier.isStale(trader)) {
+                        enqueue(trader);
+                    }
+                }
+            }, null);
+        }
+    }
+
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    private void dispatch() {
+        for (int i = 0; i < dispatchPerTick; i++) {
+            WanderingTrader trader = pending.poll();
+            if (trader == null) {
+                return;
+            }
+            pendingCount.decrementAndGet();
+            // Retired entities (removed or unloaded) simply drop out of the queue
+            trader.getScheduler().run(plugin, task -> process(trader), null);
+        }
+    }
+
+    private void process(WanderingTrader trader) {
+        if (!applier.isStale(trader)) {
+            return;
+        }
+        Location location = trader.getLocation();
+        if (!budget.hasBudget(location)) {
+            // Region is out of time this tick, retry on the trader's next tick without going through the queue
+            trader.getScheduler().runDelayed(plugin, task -> process(trader), null, 1L);
+            return;
+        }
+
+        long start = System.nanoTime();
+        applier.applyCustomTrades(trader);
+        budget.charge(location, System.nanoTime() - start);
+        plugin.getMetrics().recordReroll();
+    }
+}
@@ -0,0 +1,189 @@
+package su.brim.simulation;
+
+import su.brim.config.TradeCatalog;
+import su.brim.model.Trade;
+import org.bukkit.Material;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+/**
+ * Monte Carlo simulation of trader rolls for tuning weights and trade counts.
+ * Runs the catalog's real selection on a dedicated fork-join pool, splitting the work into
+ * ranges that each draw from their own split of one generator, so results are reproducible
+ * for a given seed and never touch server threads.
+ */
+public final class TradeSimulator {
+
+    // Rolls per leaf task, large enough to amortize the per-task tally arrays
+    private static final long LEAF_ROLLS = 50_000;
+    private static final int TOP_TRADES = 15;
+
+    private TradeSimulator() {
+    }
+
+    /**
+     * Simulates {@code rolls} traders on a new pool that is shut down once done.
+     * @return Future completed on a pool thread with the results
+     */
+    public static CompletableFuture<Result> simulateAsync(TradeCatalog catalog, long rolls, long seed) {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        return CompletableFuture
+                .supplyAsync(() -> simulate(catalog, rolls, seed), pool)
+                .whenComplete((result, error) -> pool.shutdown());
+    }
+
+    /**
+     * Simulates {@code rolls} traders, forking into the calling fork-join pool when run inside one.
+     */
+    public static Result simulate(TradeCatalog catalog, long rolls, long seed) {
+        long start = System.nanoTime();
+        Tally tally = new SimulationTask(catalog, 0, rolls, new SplittableRandom(seed)).invoke();
+        return new Result(catalog, rolls, tally, System.nanoTime() - start);
+    }
+
+    private static final class SimulationTask extends RecursiveTask<Tally> {
+
+        private final TradeCatalog catalog;
+        private final long from;
+        private final long to;
+        private final SplittableRandom random;
+
+        SimulationTask(TradeCatalog catalog, long from, long to, SplittableRandom random) {
+            this.catalog = catalog;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (to - from <= LEAF_ROLLS) {
+                return roll();
+            }
+            long middle = (from + to) >>> 1;
+            // Split before forking so each half owns an independent stream
+            SimulationTask left = new SimulationTask(catalog, from, middle, random.split());
+            SimulationTask right = new SimulationTask(catalog, middle, to, random);
+            left.fork();
+            Tally tally = right.compute();
+            tally.merge(left.join());
+            return tally;
+        }
+
+        private Tally roll() {
+            Tally tally = new Tally(catalog);
+            for (long i = from; i < to; i++) {
+                List<Trade> offers = catalog.selectRandomTrades(random);
+                tally.sizes[offers.size()]++;
+                for (Trade trade : offers) {
+                    tally.appearances[catalog.indexOf(trade)]++;
+                    int diamonds = diamondCost(trade);
+                    tally.diamonds += diamonds;
+                    tally.buyoutDiamonds += (long) diamonds * trade.getMaxUses();
+                }
+            }
+            return tally;
+        }
+    }
+
+    private static int diamondCost(Trade trade) {
+        int diamonds = trade.getCostMaterial() == Material.DIAMOND ? trade.getCostAmount() : 0;
+        if (trade.getSecondCostMaterial() == Material.DIAMOND) {
+            diamonds += trade.getSecondCostAmount();
+        }
+        return diamonds;
+    }
+
+    private static final class Tally {
+
+        final long[] appearances;
+        final long[] sizes;
+        long diamonds;
+        long buyoutDiamonds;
+
+        Tally(TradeCatalog catalog) {
+            this.appearances = new long[catalog.size()];
+            this.sizes = new long[Math.max(catalog.getMinTrades(), catalog.getMaxTrades()) + 1];
+        }
+
+        void merge(Tally other) {
+            for (int i = 0; i < appearances.length; i++) {
+                appearances[i] += other.appearances[i];
+            }
+            for (int i = 0; i < sizes.length; i++) {
+                sizes[i] += other.sizes[i];
+            }
+            diamonds += other.diamonds;
+            buyoutDiamonds += other.buyoutDiamonds;
+        }
+    }
+
+    /**
+     * Outcome of a simulation run.
+     */
+    public static final class Result {
+
+        private final TradeCatalog catalog;
+        private final long rolls;
+        private final Tally tally;
+        private final long elapsedNanos;
+
+        private Result(TradeCatalog catalog, long rolls, Tally tally, long elapsedNanos) {
+            this.catalog = catalog;
+            this.rolls = rolls;
+            this.tally = tally;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return Probability that a trader offers the trade at the given catalog position
+         */
+        public double getAppearanceProbability(int index) {
+            return rolls == 0 ? 0 : tally.appearances[index] / (double) rolls;
+        }
+
+        public double getMeanDiamonds() {
+            return rolls == 0 ? 0 : tally.diamonds / (double) rolls;
+        }
+
+        /**
+         * Renders the results as plain-text lines, most frequent trades first.
+         */
+        public List<String> report() {
+            List<String> lines = new ArrayList<>();
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            lines.add(String.format("Simulated %,d traders in %.2fs (%,.0f/s)",
+                    rolls, seconds, rolls / Math.max(seconds, 1e-9)));
+            lines.add(String.format("Diamond cost of all offers per trader: %.2f (%.2f if every offer is bought out)",
+                    getMeanDiamonds(), rolls == 0 ? 0 : tally.buyoutDiamonds / (double) rolls));
+
+            lines.add("Offers per trader:");
+            for (int size = 0; size < tally.sizes.length; size++) {
+                if (tally.sizes[size] > 0) {
+                    lines.add(String.format("  %d: %.2f%%", size, 100.0 * tally.sizes[size] / rolls));
+                }
+            }
+
+            List<Integer> order = IntStream.range(0, catalog.size()).boxed()
+                    .sorted(Comparator.comparingLong((Integer i) -> tally.appearances[i]).reversed())
+                    .toList();
+            lines.add("Appearance probability per trade:");
+            for (int i = 0; i < Math.min(TOP_TRADES, order.size()); i++) {
+                Trade trade = catalog.getTrade(order.get(i));
+                lines.add(String.format("  %s: %.2f%% (weight %d)",
+                        trade.getId(), 100 * getAppearanceProbability(order.get(i)), trade.getWeight()));
+            }
+            if (order.size() > TOP_TRADES) {
+                lines.add("  ... and " + (order.size() - TOP_TRADES) + " more");
+            }
+            return lines;
+        }
+    }
+}
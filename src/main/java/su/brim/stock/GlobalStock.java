@@ -0,0 +1,169 @@
+package su.brim.stock;
+
+import su.brim.WanderingTraderPlugin;
+import su.brim.config.TradeCatalog;
+import su.brim.model.Trade;
+import su.brim.model.TradeTable;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Server-wide supply of trades with a global stock limit.
+ * Purchases on any region thread take units from lock-free striped counters; refills run
+ * on an async timer. Stock is keyed by trade id, so it carries over config reloads.
+ */
+public class GlobalStock {
+
+    private static final long RESTOCK_CHECK_SECONDS = 5;
+
+    private final WanderingTraderPlugin plugin;
+    private final Map<String, StripedStock> stocks = new ConcurrentHashMap<>();
+    private final AtomicInteger soldOutCount = new AtomicInteger();
+    private final Predicate<Trade> soldOutFilter = this::isSoldOut;
+    // Stocks by row of the current catalog's table, so selection never hashes trade ids
+    private volatile Snapshot snapshot = new Snapshot(null, new StripedStock[0]);
+
+    public GlobalStock(WanderingTraderPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Starts the async task refilling stocks whose restock time has come.
+     */
+    public void start() {
+        plugin.getServer().getAsyncScheduler().runAtFixedRate(plugin, task -> restockDue(),
+                RESTOCK_CHECK_SECONDS, RESTOCK_CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Matches stocks to a newly published catalog.
+     * Trades keeping the same limit and interval keep their remaining units; changed ones are refilled.
+     */
+    public synchronized void sync(TradeCatalog catalog) {
+        TradeTable table = catalog.getTable();
+        StripedStock[] byRow = new StripedStock[table.size()];
+        Set<String> limited = new HashSet<>();
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < table.size(); i++) {
+            Trade trade = table.get(i);
+            if (!trade.hasLimitedStock()) {
+                continue;
+            }
+            int limit = trade.getStock().getLimit();
+            int restockMinutes = trade.getStock().getRestockMinutes();
+            StripedStock stock = stocks.get(trade.getId());
+            if (stock == null) {
+                stock = new StripedStock(limit, restockMinutes);
+                stocks.put(trade.getId(), stock);
+            } else if (stock.getLimit() != limit || stock.getRestockMinutes() != restockMinutes) {
+                stock.configure(limit, restockMinutes);
+                stock.restock(now);
+                markAvailable(stock);
+            }
+            byRow[i] = stock;
+            limited.add(trade.getId());
+        }
+
+        stocks.entrySet().removeIf(entry -> {
+            if (limited.contains(entry.getKey())) {
+                return false;
+            }
+            markAvailable(entry.getValue());
+            return true;
+        });
+        snapshot = new Snapshot(table, byRow);
+    }
+
+    /**
+     * @return Filter for sold out trades, or null while nothing is sold out so selection can skip the checks
+     */
+    public Predicate<Trade> unavailable() {
+        return soldOutCount.get() == 0 ? null : soldOutFilter;
+    }
+
+    public boolean isSoldOut(Trade trade) {
+        StripedStock stock = stockFor(trade);
+        return stock != null && stock.isSoldOut();
+    }
+
+    /**
+     * Reserves one unit for a purchase. Trades without a limit always succeed.
+     * @return false if the trade is sold out server-wide
+     */
+    public boolean tryAcquire(Trade trade) {
+        StripedStock stock = stockFor(trade);
+        if (stock == null) {
+            return true;
+        }
+        boolean acquired = stock.tryAcquire();
+        if (stock.available() <= 0 && stock.setSoldOut(true)) {
+            soldOutCount.incrementAndGet();
+            // A release or refill may have slipped in between the read and the flag
+            if (stock.available() > 0) {
+                markAvailable(stock);
+            }
+        }
+        return acquired;
+    }
+
+    /**
+     * Gives back a unit reserved by {@link #tryAcquire(Trade)} for a purchase that was cancelled.
+     */
+    public void release(Trade trade) {
+        StripedStock stock = stockFor(trade);
+        if (stock != null) {
+            stock.release();
+            markAvailable(stock);
+        }
+    }
+
+    /**
+     * @return Units left server-wide, or -1 if the trade has no global limit
+     */
+    public long getAvailable(Trade trade) {
+        StripedStock stock = stockFor(trade);
+        return stock != null ? stock.available() : -1;
+    }
+
+    public int getSoldOutCount() {
+        return soldOutCount.get();
+    }
+
+    private void restockDue() {
+        long now = System.currentTimeMillis();
+        for (StripedStock stock : stocks.values()) {
+            if (stock.isRestockDue(now)) {
+                stock.restock(now);
+                markAvailable(stock);
+            }
+        }
+    }
+
+    private void markAvailable(StripedStock stock) {
+        if (stock.setSoldOut(false)) {
+            soldOutCount.decrementAndGet();
+        }
+    }
+
+    private StripedStock stockFor(Trade trade) {
+        Snapshot current = snapshot;
+        if (current.table != null) {
+            int row = current.table.indexOf(trade);
+            if (row >= 0) {
+                return current.byRow[row];
+            }
+        }
+        // Trade from a catalog published after or before the last sync
+        return trade.hasLimitedStock() ? stocks.get(trade.getId()) : null;
+    }
+
+    private record Snapshot(TradeTable table, StripedStock[] byRow) {
+    }
+}
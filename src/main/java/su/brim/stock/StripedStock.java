@@ -0,0 +1,110 @@
+package su.brim.stock;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free counter of the units left of one trade, split across padded stripes.
+ * Each thread starts at its own stripe, so region threads buying the same trade
+ * rarely touch the same cache line; a thread only moves on once its stripe is empty.
+ */
+final class StripedStock {
+
+    // Stripe values are 8 longs apart, keeping each on its own 64-byte cache line
+    private static final int PADDING = 8;
+    private static final int STRIPES = Math.min(64,
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1));
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+    private volatile int limit;
+    private volatile int restockMinutes;
+    private volatile long nextRestockAt;
+    private final AtomicBoolean soldOut = new AtomicBoolean();
+
+    StripedStock(int limit, int restockMinutes) {
+        configure(limit, restockMinutes);
+        restock(System.currentTimeMillis());
+    }
+
+    void configure(int limit, int restockMinutes) {
+        this.limit = limit;
+        this.restockMinutes = restockMinutes;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    int getRestockMinutes() {
+        return restockMinutes;
+    }
+
+    /**
+     * Takes one unit, first from the calling thread's stripe, then from any other.
+     * @return false if no stripe had a unit left
+     */
+    boolean tryAcquire() {
+        int home = home();
+        for (int i = 0; i < STRIPES; i++) {
+            int cell = ((home + i) & (STRIPES - 1)) * PADDING;
+            long value = cells.get(cell);
+            while (value > 0) {
+                if (cells.compareAndSet(cell, value, value - 1)) {
+                    return true;
+                }
+                value = cells.get(cell);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a unit taken by {@link #tryAcquire()} for a purchase that did not go through.
+     */
+    void release() {
+        cells.getAndIncrement(home() * PADDING);
+    }
+
+    /**
+     * Refills every stripe to an even share of the limit.
+     */
+    void restock(long now) {
+        int total = limit;
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * PADDING, total / STRIPES + (i < total % STRIPES ? 1 : 0));
+        }
+        int minutes = restockMinutes;
+        nextRestockAt = minutes > 0 ? now + minutes * 60_000L : Long.MAX_VALUE;
+    }
+
+    boolean isRestockDue(long now) {
+        return now >= nextRestockAt;
+    }
+
+    /**
+     * @return Units left; may be slightly off while other threads are buying
+     */
+    long available() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    boolean isSoldOut() {
+        return soldOut.get();
+    }
+
+    /**
+     * @return true if this call changed the flag
+     */
+    boolean setSoldOut(boolean value) {
+        return soldOut.get() != value && soldOut.compareAndSet(!value, value);
+    }
+
+    private static int home() {
+        int hash = System.identityHashCode(Thread.currentThread());
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+}
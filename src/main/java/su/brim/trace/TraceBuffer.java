@@ -0,0 +1,171 @@
+package su.brim.trace;
+
+import su.brim.WanderingTraderPlugin;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size ring of trace events from the spawn path and config reloads.
+ * Events are stored as primitives in preallocated arrays, so recording never allocates or locks:
+ * a writer claims a slot with one atomic increment and overwrites the oldest event.
+ * Traders are sampled by UUID, so a sampled trader has all of its events recorded.
+ * When tracing is disabled every recording method returns after one field read.
+ */
+public class TraceBuffer {
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final long sampleThreshold;
+    private final int mask;
+
+    private final AtomicLong cursor = new AtomicLong();
+    // Sequence of the event in each slot plus one, 0 while it is being written
+    private final AtomicLongArray sequences;
+    private final long[] times;
+    private final byte[] types;
+    private final long[] uuidHigh;
+    private final long[] uuidLow;
+    private final long[] values;
+    private final long[] nanos;
+    // Ids rather than threads, so the ring never keeps a finished thread alive
+    private final long[] threadIds;
+
+    public TraceBuffer(WanderingTraderPlugin plugin) {
+        this.enabled = plugin.getConfig().getBoolean("trace.enabled", false);
+        this.sampleRate = Math.min(1.0, Math.max(0.0, plugin.getConfig().getDouble("trace.sample-rate", 0.1)));
+        this.sampleThreshold = sampleRate >= 1.0 ? Long.MAX_VALUE : (long) (sampleRate * Long.MAX_VALUE);
+
+        int capacity = 1;
+        if (enabled) {
+            // Rounded up to a power of two, so a slot is a mask away from the sequence
+            int requested = Math.min(1 << 24, Math.max(16, plugin.getConfig().getInt("trace.capacity", 65536)));
+            capacity = Integer.highestOneBit(requested - 1) << 1;
+        }
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        this.times = new long[capacity];
+        this.types = new byte[capacity];
+        this.uuidHigh = new long[capacity];
+        this.uuidLow = new long[capacity];
+        this.values = new long[capacity];
+        this.nanos = new long[capacity];
+        this.threadIds = new long[capacity];
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return Events recorded since startup, including those already overwritten
+     */
+    public long getRecordedCount() {
+        return cursor.get();
+    }
+
+    /**
+     * @return true if events of this trader are recorded
+     */
+    public boolean isSampled(UUID trader) {
+        if (!enabled) {
+            return false;
+        }
+        // Stafford mix of the UUID, then compare against the sample rate
+        long z = trader.getMostSignificantBits() ^ trader.getLeastSignificantBits();
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return ((z ^ (z >>> 31)) >>> 1) < sampleThreshold;
+    }
+
+    /**
+     * Records a trader event if the trader is sampled.
+     * @param value Event specific, see {@link TraceEvent}
+     */
+    public void trader(TraceEvent event, UUID trader, long value, long durationNanos) {
+        if (isSampled(trader)) {
+            record(event, trader.getMostSignificantBits(), trader.getLeastSignificantBits(), value, durationNanos);
+        }
+    }
+
+    /**
+     * Records an event not tied to a trader, such as a reload. Never sampled out.
+     */
+    public void global(TraceEvent event, long value, long durationNanos) {
+        if (enabled) {
+            record(event, 0, 0, value, durationNanos);
+        }
+    }
+
+    private void record(TraceEvent event, long high, long low, long value, long durationNanos) {
+        long sequence = cursor.getAndIncrement();
+        int slot = (int) sequence & mask;
+        sequences.setOpaque(slot, 0);
+        // Keep the fields below from being written before the slot is marked as in progress
+        VarHandle.releaseFence();
+        times[slot] = System.currentTimeMillis();
+        types[slot] = (byte) event.ordinal();
+        uuidHigh[slot] = high;
+        uuidLow[slot] = low;
+        values[slot] = value;
+        nanos[slot] = durationNanos;
+        threadIds[slot] = Thread.currentThread().threadId();
+        sequences.setRelease(slot, sequence + 1);
+    }
+
+    /**
+     * Writes the events currently in the ring to a file, oldest first.
+     * Events overwritten while the dump runs are skipped. Meant for async scheduler threads only.
+     * @return Number of events written
+     */
+    public int dump(Path file) throws IOException {
+        long end = cursor.get();
+        long start = Math.max(0, end - (mask + 1));
+        int written = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("# time thread_id event trader value duration_us");
+            writer.newLine();
+            for (long sequence = start; sequence < end; sequence++) {
+                int slot = (int) sequence & mask;
+                if (sequences.getAcquire(slot) != sequence + 1) {
+                    continue;
+                }
+                long time = times[slot];
+                TraceEvent event = TraceEvent.byOrdinal(types[slot]);
+                long high = uuidHigh[slot];
+                long low = uuidLow[slot];
+                long value = values[slot];
+                long duration = nanos[slot];
+                long threadId = threadIds[slot];
+                // Discard the copy if a writer took the slot meanwhile
+                VarHandle.acquireFence();
+                if (sequences.getOpaque(slot) != sequence + 1) {
+                    continue;
+                }
+
+                writer.write(Instant.ofEpochMilli(time) + " " + threadId
+                        + " " + event + " " + (high == 0 && low == 0 ? "-" : new UUID(high, low))
+                        + " " + value + " " + String.format("%.1f", duration / 1000.0));
+                writer.newLine();
+                written++;
+            }
+        }
+        return written;
+    }
+}
@@ -0,0 +1,21 @@
+package su.brim.trace;
+
+/**
+ * Kinds of events in the trace buffer, with the meaning of their value.
+ */
+public enum TraceEvent {
+    /** A trader spawned; value is 1 if it was claimed, 0 for a repeat event */
+    SPAWN,
+    /** Offers were rolled for a trader; value is the number of trades selected */
+    SELECT,
+    /** Recipes were set on a trader; value is the catalog version they came from */
+    APPLY,
+    /** Trades were loaded; value is the number of trades, 0 if loading failed */
+    RELOAD;
+
+    private static final TraceEvent[] VALUES = values();
+
+    static TraceEvent byOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
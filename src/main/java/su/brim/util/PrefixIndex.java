@@ -0,0 +1,141 @@
+package su.brim.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable map from lowercase string keys to sorted row numbers, queried by key prefix.
+ * Keys are kept sorted, so all keys sharing a prefix form one contiguous range that two binary
+ * searches find. This answers the same queries as a trie without a node per character.
+ * Thread-safe: holds no mutable state.
+ */
+public final class PrefixIndex {
+
+    private static final int[] NO_ROWS = new int[0];
+
+    private final String[] keys;
+    private final int[][] rows;
+
+    private PrefixIndex(String[] keys, int[][] rows) {
+        this.keys = keys;
+        this.rows = rows;
+    }
+
+    /**
+     * Collects keys and their rows, then compiles them into an index.
+     */
+    public static final class Builder {
+
+        private final Map<String, List<Integer>> entries = new TreeMap<>();
+
+        /**
+         * Adds a row under a key. Rows must be added in ascending order.
+         */
+        public Builder add(String key, int row) {
+            List<Integer> keyRows = entries.computeIfAbsent(key.toLowerCase(), k -> new ArrayList<>());
+            if (keyRows.isEmpty() || keyRows.get(keyRows.size() - 1) != row) {
+                keyRows.add(row);
+            }
+            return this;
+        }
+
+        public PrefixIndex build() {
+            String[] keys = new String[entries.size()];
+            int[][] rows = new int[entries.size()][];
+            int i = 0;
+            for (Map.Entry<String, List<Integer>> entry : entries.entrySet()) {
+                keys[i] = entry.getKey();
+                rows[i] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+                i++;
+            }
+            return new PrefixIndex(keys, rows);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @return Rows of every key starting with the prefix, ascending and without duplicates.
+     *         May be shared with the index, so callers must not modify it.
+     * @param rowCount Upper bound of the row numbers, used to merge the rows of several keys
+     */
+    public int[] find(String prefix, int rowCount) {
+        String lower = prefix.toLowerCase();
+        int from = lowerBound(lower);
+        int to = upperBound(lower, from);
+        if (from == to) {
+            return NO_ROWS;
+        }
+        if (to - from == 1) {
+            return rows[from];
+        }
+        BitSet union = new BitSet(rowCount);
+        for (int i = from; i < to; i++) {
+            for (int row : rows[i]) {
+                union.set(row);
+            }
+        }
+        return union.stream().toArray();
+    }
+
+    /**
+     * @return Up to {@code limit} keys starting with the prefix, in alphabetical order
+     */
+    public List<String> complete(String prefix, int limit) {
+        String lower = prefix.toLowerCase();
+        int from = lowerBound(lower);
+        int to = Math.min(upperBound(lower, from), from + limit);
+        return Arrays.asList(keys).subList(from, to);
+    }
+
+    // First key not sorting before the prefix
+    private int lowerBound(String prefix) {
+        int index = Arrays.binarySearch(keys, prefix);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    // First key at or after from that does not start with the prefix
+    private int upperBound(String prefix, int from) {
+        int low = from;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].startsWith(prefix)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return Rows present in both sorted arrays
+     */
+    public static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+}
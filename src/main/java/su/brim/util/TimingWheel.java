@@ -0,0 +1,91 @@
+package su.brim.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel: timers are hashed by deadline into a fixed ring of slots, and advancing
+ * the wheel only visits the slots passed since the last advance. Scheduling is O(1) and the cost
+ * of a tick depends on the timers due, not on how many are waiting.
+ * Deadlines further out than one rotation stay in their slot until their round comes.
+ * Not thread-safe: meant to be confined to one thread, or one region, at a time.
+ */
+public final class TimingWheel<T> {
+
+    private final List<Timer<T>>[] slots;
+    private final int mask;
+    private final List<T> expired = new ArrayList<>();
+    private long current;
+    private int size;
+
+    /**
+     * @param slotCount Number of slots, rounded up to a power of two
+     * @param now Tick the wheel starts at; deadlines are in the same unit
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(int slotCount, long now) {
+        int capacity = Integer.highestOneBit(Math.max(2, slotCount) - 1) << 1;
+        this.slots = new List[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new ArrayList<>(4);
+        }
+        this.mask = capacity - 1;
+        this.current = now;
+    }
+
+    /**
+     * Schedules a value to expire at the given tick. Deadlines already passed expire on the next advance.
+     */
+    public void schedule(T value, long deadline) {
+        long tick = Math.max(deadline, current + 1);
+        slots[(int) tick & mask].add(new Timer<>(value, tick));
+        size++;
+    }
+
+    /**
+     * Moves the wheel forward and hands every value due by then to the consumer, in no particular order.
+     * The consumer may schedule into this wheel again; those timers are never expired by the same advance.
+     */
+    public void advance(long now, Consumer<? super T> consumer) {
+        if (now <= current) {
+            return;
+        }
+        // A gap longer than a rotation visits every slot once
+        long steps = Math.min(now - current, slots.length);
+        long from = current + 1;
+        current = now;
+        for (long tick = from; tick < from + steps; tick++) {
+            List<Timer<T>> slot = slots[(int) tick & mask];
+            for (int i = slot.size() - 1; i >= 0; i--) {
+                Timer<T> timer = slot.get(i);
+                if (timer.deadline() <= now) {
+                    // Swap-remove, order within a slot does not matter
+                    slot.set(i, slot.get(slot.size() - 1));
+                    slot.remove(slot.size() - 1);
+                    expired.add(timer.value());
+                }
+            }
+        }
+        size -= expired.size();
+
+        try {
+            for (T value : expired) {
+                consumer.accept(value);
+            }
+        } finally {
+            expired.clear();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private record Timer<T>(T value, long deadline) {
+    }
+}
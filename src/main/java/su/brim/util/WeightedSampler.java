@@ -0,0 +1,145 @@
+package su.brim.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.random.RandomGenerator;
+
+/**
+ * Immutable weighted sampler that draws distinct items without replacement.
+ * Built once from a list of items; each draw is a binary search over cumulative weights.
+ * Thread-safe: holds no mutable state, all per-draw bookkeeping lives on the caller's stack.
+ */
+public final class WeightedSampler<T> {
+
+    private static final WeightedSampler<?> EMPTY = new WeightedSampler<>(List.of(), new long[0]);
+
+    private final List<T> items;
+    // ends[i] is the exclusive end of item i's range on the cumulative weight line
+    private final long[] ends;
+    private final long totalWeight;
+
+    private WeightedSampler(List<T> items, long[] ends) {
+        this.items = items;
+        this.ends = ends;
+        this.totalWeight = ends.length == 0 ? 0 : ends[ends.length - 1];
+    }
+
+    /**
+     * Compiles a sampler from the given items.
+     * Items with a weight of zero or less are kept but can never be drawn.
+     */
+    public static <T> WeightedSampler<T> of(List<T> items, ToIntFunction<? super T> weight) {
+        List<T> copy = List.copyOf(items);
+        long[] ends = new long[copy.size()];
+        long total = 0;
+        for (int i = 0; i < ends.length; i++) {
+            total += Math.max(0, weight.applyAsInt(copy.get(i)));
+            ends[i] = total;
+        }
+        return new WeightedSampler<>(copy, ends);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> WeightedSampler<T> empty() {
+        return (WeightedSampler<T>) EMPTY;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * Draws up to {@code count} distinct items, each pick weighted among the items not yet picked.
+     * Equivalent to repeatedly picking from a pool holding one entry per unit of weight and
+     * removing the picked item, without ever materializing that pool.
+     * @return Picked items in draw order
+     */
+    public List<T> sample(RandomGenerator random, int count) {
+        return sample(random, count, null);
+    }
+
+    /**
+     * Draws like {@link #sample(RandomGenerator, int)}, leaving out items rejected by {@code skip}.
+     * A rejected draw becomes a hole like a picked one, so the result is distributed exactly as if
+     * the sampler had been built without the skipped items, while only drawn items are ever tested.
+     * @param skip Items to leave out, or null to keep all
+     * @return Picked items in draw order
+     */
+    public List<T> sample(RandomGenerator random, int count, Predicate<? super T> skip) {
+        int picks = Math.min(count, items.size());
+        if (picks <= 0 || totalWeight == 0) {
+            return Collections.emptyList();
+        }
+
+        List<T> selected = new ArrayList<>(picks);
+        // Ranges of already drawn items, sorted by start, treated as holes in the weight line
+        long[] holeStarts = new long[picks];
+        long[] holeWidths = new long[picks];
+        int holes = 0;
+        long remaining = totalWeight;
+
+        while (selected.size() < picks && remaining > 0) {
+            // Map a point on the remaining weight line back onto the full line by skipping holes
+            long point = random.nextLong(remaining);
+            for (int h = 0; h < holes && holeStarts[h] <= point; h++) {
+                point += holeWidths[h];
+            }
+
+            int index = indexOf(point);
+            long width = ends[index] - (index == 0 ? 0 : ends[index - 1]);
+            long start = ends[index] - width;
+
+            if (holes == holeStarts.length) {
+                holeStarts = Arrays.copyOf(holeStarts, holes * 2);
+                holeWidths = Arrays.copyOf(holeWidths, holes * 2);
+            }
+            int slot = holes++;
+            while (slot > 0 && holeStarts[slot - 1] > start) {
+                holeStarts[slot] = holeStarts[slot - 1];
+                holeWidths[slot] = holeWidths[slot - 1];
+                slot--;
+            }
+            holeStarts[slot] = start;
+            holeWidths[slot] = width;
+
+            remaining -= width;
+            T item = items.get(index);
+            if (skip == null || !skip.test(item)) {
+                selected.add(item);
+            }
+        }
+
+        return selected;
+    }
+
+    // Smallest index whose range ends after the given point
+    private int indexOf(long point) {
+        int low = 0;
+        int high = ends.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ends[mid] > point) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+}